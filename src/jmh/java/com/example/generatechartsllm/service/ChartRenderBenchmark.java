@@ -0,0 +1,65 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.SeriesData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end {@link ChartService#generateChart(ChartAnalysis)} per chart type and series size.
+ * The image cache is disabled so every invocation renders and encodes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Djava.awt.headless=true"})
+public class ChartRenderBenchmark {
+
+    @Param({"BAR", "LINE", "PIE", "SCATTER"})
+    public String chartType;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    public int points;
+
+    private ChartService chartService;
+    private ChartAnalysis analysis;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chartService = new ChartService(new ChartImageCache(0), Schedulers.immediate(),
+                new ChartMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(chartService, "width", 800);
+        ReflectionTestUtils.setField(chartService, "height", 600);
+        ReflectionTestUtils.setField(chartService, "compressionLevel", 4);
+
+        SplittableRandom random = new SplittableRandom(42);
+        List<String> categories = new ArrayList<>(points);
+        double[] values = new double[points];
+        double level = 100;
+        for (int i = 0; i < points; i++) {
+            categories.add("C" + i);
+            level += random.nextDouble(-1, 1);
+            values[i] = level;
+        }
+        SeriesData series = new SeriesData();
+        series.put("Series 1", values);
+
+        analysis = new ChartAnalysis(chartType, "Benchmark", "X", "Y", categories, series, "", 1.0);
+    }
+
+    @Benchmark
+    public byte[] generateChart() throws IOException {
+        return chartService.generateChart(analysis);
+    }
+}
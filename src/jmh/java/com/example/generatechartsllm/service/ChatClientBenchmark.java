@@ -0,0 +1,157 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.DataTables;
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.example.generatechartsllm.util.AdaptiveLimiter;
+import com.example.generatechartsllm.util.CircuitBreaker;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU-bound parts of {@link ChatClientService} around the LLM call: prompt building,
+ * response parsing, JSON extraction from the completion text, shape templates and the local fallback.
+ * No network calls are made.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ChatClientBenchmark {
+
+    private static final String TITLE = "Monthly sales";
+    private static final String DESCRIPTION = "Sales and units per region";
+
+    @Param({"100", "10000", "100000"})
+    public int rows;
+
+    private ChatClientService service;
+    private MappingTemplateCache templateCache;
+    private ChartInferenceEngine inferenceEngine;
+    private MappingTemplate template;
+    private JsonNode data;
+    private String response;
+    private String fencedContent;
+    private String bareContent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        PromptCompactor promptCompactor = new PromptCompactor();
+        ReflectionTestUtils.setField(promptCompactor, "tokenBudget", 3000);
+        ReflectionTestUtils.setField(promptCompactor, "charsPerToken", 4);
+        ReflectionTestUtils.setField(promptCompactor, "maxSampleRows", 20);
+
+        templateCache = new MappingTemplateCache(1000, Duration.ofHours(1), Clock.systemUTC());
+        inferenceEngine = new ChartInferenceEngine();
+        service = new ChatClientService("http://localhost", "benchmark", new ReactorClientHttpConnector(),
+                new CircuitBreaker("llm", 20, 10, 0.5, Duration.ofSeconds(30), Duration.ofSeconds(30), Clock.systemUTC()),
+                new AdaptiveLimiter("llm", 8, 1, 50, 0.75, 2.0, 1000),
+                new AnalysisCache(1000, Duration.ofHours(1), null, 10000, Clock.systemUTC()),
+                templateCache, inferenceEngine, promptCompactor, new ChartMetrics(new SimpleMeterRegistry()));
+        ReflectionTestUtils.setField(service, "model", "gpt-4");
+
+        SplittableRandom random = new SplittableRandom(42);
+        ArrayNode table = objectMapper.createArrayNode();
+        ArrayNode categories = objectMapper.createArrayNode();
+        ArrayNode sales = objectMapper.createArrayNode();
+        for (int i = 0; i < rows; i++) {
+            String month = String.format("%04d-%02d", 2000 + i / 12, i % 12 + 1);
+            double value = Math.round(random.nextDouble(1000, 5000) * 100) / 100.0;
+            ObjectNode row = table.addObject();
+            row.put("month", month);
+            row.put("region", "Region " + (i % 5));
+            row.put("sales", value);
+            row.put("units", random.nextInt(10, 500));
+            categories.add(month);
+            sales.add(value);
+        }
+        data = table;
+
+        ObjectNode analysis = objectMapper.createObjectNode();
+        analysis.put("chartType", "LINE");
+        analysis.put("title", TITLE);
+        analysis.put("xAxisLabel", "Month");
+        analysis.put("yAxisLabel", "Sales");
+        analysis.set("categories", categories);
+        analysis.set("series", objectMapper.createObjectNode().set("Sales", sales));
+        analysis.put("reasoning", "Sales are recorded per month, so a line chart shows the trend over time.");
+        String analysisJson = analysis.toPrettyString();
+
+        String prose = "Looking at the data, the values are indexed by month. ".repeat(20);
+        fencedContent = prose + "\n\n```json\n" + analysisJson + "\n```\n\n" + prose;
+        bareContent = prose + "\n\n" + analysisJson + "\n\n" + prose;
+
+        response = objectMapper.writeValueAsString(Map.of(
+                "id", "chatcmpl-benchmark",
+                "object", "chat.completion",
+                "model", "gpt-4",
+                "choices", new Object[]{Map.of(
+                        "index", 0,
+                        "message", Map.of("role", "assistant", "content", fencedContent),
+                        "finish_reason", "stop")},
+                "usage", Map.of("prompt_tokens", 500, "completion_tokens", rows * 4, "total_tokens", 500 + rows * 4)));
+        template = inferenceEngine.deriveTemplate(service.parseResponse(response, null), DataTables.fromJson(data));
+    }
+
+    /** Verbatim prompt, including pretty-printing the data. */
+    @Benchmark
+    public String buildPrompt() {
+        return service.buildPrompt(data.toPrettyString(), TITLE, DESCRIPTION);
+    }
+
+    /** Budget check plus, for large data, the compact summary prompt. */
+    @Benchmark
+    public Object preparePrompt() {
+        return service.preparePrompt(data, TITLE, DESCRIPTION);
+    }
+
+    @Benchmark
+    public ChartAnalysis parseResponse() throws Exception {
+        return service.parseResponse(response, null);
+    }
+
+    @Benchmark
+    public String extractJsonFenced() {
+        return service.extractJson(fencedContent);
+    }
+
+    /** No code fence: the regex scans the whole content before the brace fallback. */
+    @Benchmark
+    public String extractJsonBare() {
+        return service.extractJson(bareContent);
+    }
+
+    /** Structural fingerprint of the payload, the lookup key for shape templates. */
+    @Benchmark
+    public String templateKey() {
+        return templateCache.keyFor(data, TITLE, DESCRIPTION, "gpt-4");
+    }
+
+    /** A known data shape: the analysis is built from the cached template instead of calling the LLM. */
+    @Benchmark
+    public ChartAnalysis applyTemplate() {
+        return inferenceEngine.applyTemplate(template, DataTables.fromJson(data));
+    }
+
+    @Benchmark
+    public ChartAnalysis createFallbackAnalysis() {
+        return service.createFallbackAnalysis(data, TITLE);
+    }
+}
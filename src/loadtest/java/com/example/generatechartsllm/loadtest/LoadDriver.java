@@ -0,0 +1,198 @@
+package com.example.generatechartsllm.loadtest;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Open-model load: requests are started at a constant arrival rate whether or not earlier ones have
+ * finished, so a slow service builds up a backlog instead of quietly receiving less traffic. Latency is
+ * measured from each request's scheduled start, not its actual one, so a lagging driver does not hide
+ * queueing either. Only requests scheduled after the warm-up are recorded.
+ */
+final class LoadDriver {
+
+    /**
+     * @param weight share of the traffic relative to the other endpoints
+     */
+    record Endpoint(String name, String path, MediaType accept, int weight) {
+    }
+
+    private final WebClient client;
+    private final ConnectionProvider connections;
+    private final List<Samples.Sample> samples;
+    private final List<Endpoint> endpoints;
+    private final Duration timeout;
+
+    LoadDriver(String baseUrl, List<Samples.Sample> samples, List<Endpoint> endpoints, Duration timeout) {
+        this.connections = ConnectionProvider.builder("loadtest")
+                .maxConnections(4096)
+                .pendingAcquireMaxCount(-1)
+                .pendingAcquireTimeout(timeout)
+                .build();
+        this.client = WebClient.builder()
+                .baseUrl(baseUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connections)))
+                .build();
+        this.samples = samples;
+        this.endpoints = endpoints;
+        this.timeout = timeout;
+    }
+
+    Report run(double rate, Duration warmup, Duration duration) {
+        long periodNanos = (long) (1_000_000_000L / rate);
+        long total = (warmup.plus(duration).toNanos()) / periodNanos;
+        Map<String, Stats> stats = new LinkedHashMap<>();
+        endpoints.forEach(endpoint -> stats.put(endpoint.name(), new Stats()));
+
+        long startNanos = System.nanoTime();
+        long measureFromNanos = startNanos + warmup.toNanos();
+        Flux.interval(Duration.ofNanos(periodNanos))
+                .take(total)
+                .flatMap(i -> {
+                    long scheduledNanos = startNanos + (i + 1) * periodNanos;
+                    Endpoint endpoint = endpoint(i);
+                    return send(i, endpoint).doOnNext(outcome -> {
+                        if (scheduledNanos >= measureFromNanos) {
+                            stats.get(endpoint.name()).record(System.nanoTime() - scheduledNanos, outcome);
+                        }
+                    });
+                }, Integer.MAX_VALUE)
+                .blockLast();
+        connections.dispose();
+        return new Report(rate, duration, stats);
+    }
+
+    private Mono<String> send(long index, Endpoint endpoint) {
+        Samples.Sample sample = samples.get((int) (index % samples.size()));
+        // A unique description defeats the service's caches, so every request takes the full path
+        ObjectNode body = sample.body().deepCopy();
+        body.put("description", body.path("description").asText("") + " [load-test " + index + "]");
+        return client.post()
+                .uri(endpoint.path())
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(endpoint.accept())
+                .bodyValue(body.toString())
+                .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                .timeout(timeout)
+                .map(status -> status >= 200 && status < 300 ? Stats.OK : "HTTP " + status)
+                .onErrorResume(e -> Mono.just(e instanceof TimeoutException ? "timeout" : e.getClass().getSimpleName()));
+    }
+
+    /**
+     * Interleaves the endpoints by weight, e.g. 3:1 sends generate, generate, generate, analyze.
+     */
+    private Endpoint endpoint(long index) {
+        int totalWeight = endpoints.stream().mapToInt(Endpoint::weight).sum();
+        long slot = index % totalWeight;
+        for (Endpoint endpoint : endpoints) {
+            slot -= endpoint.weight();
+            if (slot < 0) {
+                return endpoint;
+            }
+        }
+        return endpoints.get(0);
+    }
+
+    static final class Stats {
+        static final String OK = "ok";
+
+        private long[] latencies = new long[1024];
+        private int count;
+        private long ok;
+        private final Map<String, Long> errors = new TreeMap<>();
+
+        synchronized void record(long latencyNanos, String outcome) {
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latencyNanos;
+            if (OK.equals(outcome)) {
+                ok++;
+            } else {
+                errors.merge(outcome, 1L, Long::sum);
+            }
+        }
+
+        synchronized int count() {
+            return count;
+        }
+
+        synchronized long ok() {
+            return ok;
+        }
+
+        synchronized double errorRate() {
+            return count == 0 ? 0 : (double) (count - ok) / count;
+        }
+
+        /**
+         * Nearest-rank percentile over all recorded requests, failed ones included.
+         */
+        synchronized Duration percentile(double p) {
+            if (count == 0) {
+                return Duration.ZERO;
+            }
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(p * count) - 1;
+            return Duration.ofNanos(sorted[Math.max(0, Math.min(count - 1, rank))]);
+        }
+
+        synchronized Map<String, Long> errors() {
+            return new TreeMap<>(errors);
+        }
+
+        synchronized void addTo(Stats total) {
+            synchronized (total) {
+                total.latencies = Arrays.copyOf(total.latencies, Math.max(total.latencies.length, total.count + count));
+                System.arraycopy(latencies, 0, total.latencies, total.count, count);
+                total.count += count;
+                total.ok += ok;
+                errors.forEach((outcome, n) -> total.errors.merge(outcome, n, Long::sum));
+            }
+        }
+    }
+
+    record Report(double rate, Duration duration, Map<String, Stats> endpoints) {
+
+        Stats total() {
+            Stats total = new Stats();
+            endpoints.values().forEach(stats -> stats.addTo(total));
+            return total;
+        }
+
+        void print(PrintStream out) {
+            out.printf("%nOffered load %.1f req/s for %ds%n", rate, duration.toSeconds());
+            out.printf("%-10s %8s %10s %8s %9s %9s %9s %9s %9s%n",
+                    "endpoint", "requests", "ok/s", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+            List<Map.Entry<String, Stats>> rows = new ArrayList<>(endpoints.entrySet());
+            rows.add(Map.entry("total", total()));
+            for (Map.Entry<String, Stats> row : rows) {
+                Stats stats = row.getValue();
+                out.printf("%-10s %8d %10.1f %7.2f%% %9d %9d %9d %9d %9d%n",
+                        row.getKey(), stats.count(), stats.ok() / (double) duration.toSeconds(), stats.errorRate() * 100,
+                        stats.percentile(0.5).toMillis(), stats.percentile(0.9).toMillis(),
+                        stats.percentile(0.99).toMillis(), stats.percentile(0.999).toMillis(),
+                        stats.percentile(1.0).toMillis());
+            }
+            endpoints.forEach((name, stats) -> stats.errors().forEach((outcome, n) ->
+                    out.printf("  %s: %d x %s%n", name, n, outcome)));
+        }
+    }
+}
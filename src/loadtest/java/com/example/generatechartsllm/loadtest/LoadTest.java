@@ -0,0 +1,168 @@
+package com.example.generatechartsllm.loadtest;
+
+import com.example.generatechartsllm.GenerateChartsLlmApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Offline load test: starts {@link MockLlmServer} on the sample data, boots the service against it (or
+ * targets one already running with {@code --target}), drives open-model traffic at /generate and /analyze
+ * and prints throughput, latency percentiles and error rates. Exits with 1 when the error rate or the
+ * p99 latency exceeds its threshold, so it can gate a deploy.
+ * <p>
+ * Options ({@code --name=value}): rate, duration, warmup, mix, timeout, target, mock-port,
+ * llm-latency-median, llm-latency-p99, llm-error-rate, llm-rate-limit-rate, llm-quota, llm-retry-after,
+ * max-error-rate, max-p99. Options with a dot, e.g. {@code --chart.llm.limiter.max-limit=20}, are passed
+ * to the in-process service.
+ */
+public final class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("rate", "5"),
+            Map.entry("duration", "PT60S"),
+            Map.entry("warmup", "PT10S"),
+            Map.entry("mix", "generate:3,analyze:1"),
+            Map.entry("timeout", "PT30S"),
+            Map.entry("mock-port", "0"),
+            Map.entry("llm-latency-median", "PT0.8S"),
+            Map.entry("llm-latency-p99", "PT3S"),
+            Map.entry("llm-error-rate", "0"),
+            Map.entry("llm-rate-limit-rate", "0"),
+            Map.entry("llm-quota", "0"),
+            Map.entry("llm-retry-after", "PT1S"),
+            Map.entry("max-error-rate", "0.01"),
+            Map.entry("max-p99", "PT10S"));
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new LinkedHashMap<>(DEFAULTS);
+        Map<String, String> appProperties = new LinkedHashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (!arg.startsWith("--") || equals < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            String name = arg.substring(2, equals);
+            String value = arg.substring(equals + 1);
+            if (name.contains(".")) {
+                appProperties.put(name, value);
+            } else if (DEFAULTS.containsKey(name) || name.equals("target")) {
+                options.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        List<Samples.Sample> samples = Samples.load(objectMapper, Path.of("samples"), Path.of("sample-requests"));
+        if (samples.isEmpty()) {
+            System.err.println("No usable samples in samples/ or sample-requests/");
+            System.exit(2);
+        }
+
+        MockLlmServer.Settings settings = new MockLlmServer.Settings(
+                Duration.parse(options.get("llm-latency-median")),
+                Duration.parse(options.get("llm-latency-p99")),
+                Double.parseDouble(options.get("llm-error-rate")),
+                Double.parseDouble(options.get("llm-rate-limit-rate")),
+                Integer.parseInt(options.get("llm-quota")),
+                Duration.parse(options.get("llm-retry-after")));
+
+        int exitCode;
+        ConfigurableApplicationContext app = null;
+        try (MockLlmServer mock = new MockLlmServer(samples, settings, objectMapper)) {
+            String llmUrl = "http://127.0.0.1:" + mock.start(Integer.parseInt(options.get("mock-port"))) + "/v1/chat/completions";
+            System.out.printf("Mock LLM on %s with %d samples, %s%n", llmUrl, samples.size(), settings);
+
+            String target = options.get("target");
+            if (target == null) {
+                app = SpringApplication.run(GenerateChartsLlmApplication.class, appArgs(llmUrl, appProperties));
+                target = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+            } else {
+                System.out.printf("Targeting %s; point its openai.api.url at %s for offline runs%n", target, llmUrl);
+            }
+
+            LoadDriver driver = new LoadDriver(target, samples, endpoints(options.get("mix")),
+                    Duration.parse(options.get("timeout")));
+            Duration warmup = Duration.parse(options.get("warmup"));
+            Duration duration = Duration.parse(options.get("duration"));
+            double rate = Double.parseDouble(options.get("rate"));
+            System.out.printf("Driving %.1f req/s at %s: %s warm-up, then %s measured%n", rate, target, warmup, duration);
+            LoadDriver.Report report = driver.run(rate, warmup, duration);
+
+            report.print(System.out);
+            System.out.printf("Mock LLM: %d calls, %d failed, %d rate limited%n",
+                    mock.calls(), mock.failed(), mock.rateLimited());
+            exitCode = check(report.total(), Double.parseDouble(options.get("max-error-rate")),
+                    Duration.parse(options.get("max-p99"))) ? 0 : 1;
+        } finally {
+            if (app != null) {
+                app.close();
+            }
+        }
+        System.exit(exitCode);
+    }
+
+    private static String[] appArgs(String llmUrl, Map<String, String> overrides) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("openai.api.url", llmUrl);
+        properties.put("openai.api.key", "load-test");
+        // Heuristics would answer most samples without the LLM
+        properties.put("chart.inference.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.example.generatechartsllm", "WARN");
+        properties.putAll(overrides);
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    /**
+     * @param mix e.g. {@code generate:3,analyze:1}
+     */
+    private static List<LoadDriver.Endpoint> endpoints(String mix) {
+        List<LoadDriver.Endpoint> endpoints = new ArrayList<>();
+        for (String part : mix.split(",")) {
+            String[] nameWeight = part.trim().split(":");
+            int weight = nameWeight.length > 1 ? Integer.parseInt(nameWeight[1]) : 1;
+            switch (nameWeight[0]) {
+                case "generate" -> endpoints.add(new LoadDriver.Endpoint("generate", "/api/charts/generate", MediaType.IMAGE_PNG, weight));
+                case "analyze" -> endpoints.add(new LoadDriver.Endpoint("analyze", "/api/charts/analyze", MediaType.APPLICATION_JSON, weight));
+                default -> throw new IllegalArgumentException("Unknown endpoint in --mix: " + nameWeight[0]);
+            }
+        }
+        return endpoints;
+    }
+
+    private static boolean check(LoadDriver.Stats total, double maxErrorRate, Duration maxP99) {
+        boolean passed = true;
+        if (total.count() == 0) {
+            System.out.println("FAIL: no requests were measured");
+            return false;
+        }
+        if (total.errorRate() > maxErrorRate) {
+            System.out.printf("FAIL: error rate %.2f%% above %.2f%%%n", total.errorRate() * 100, maxErrorRate * 100);
+            passed = false;
+        }
+        if (total.percentile(0.99).compareTo(maxP99) > 0) {
+            System.out.printf("FAIL: p99 %d ms above %d ms%n", total.percentile(0.99).toMillis(), maxP99.toMillis());
+            passed = false;
+        }
+        if (passed) {
+            System.out.println("PASS");
+        }
+        return passed;
+    }
+}
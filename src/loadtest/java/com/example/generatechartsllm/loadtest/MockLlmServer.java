@@ -0,0 +1,201 @@
+package com.example.generatechartsllm.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline stand-in for an OpenAI-compatible chat completions endpoint, on any path. Answers with the
+ * analysis canned for the sample whose title appears in the prompt, after a log-normally distributed
+ * latency, streamed as server-sent events when the request asks for it. A share of calls fails with
+ * 500 or with 429 and a Retry-After; with a quota, calls beyond that many concurrent ones get 429 too,
+ * like a provider's rate limit.
+ */
+final class MockLlmServer implements AutoCloseable {
+
+    /** Marker the driver puts in each request's description, echoed into the chart title. */
+    static final Pattern REQUEST_MARKER = Pattern.compile("\\[load-test (\\d+)]");
+
+    private static final double Z_99 = 2.326;
+    private static final int STREAM_CHUNK_CHARS = 24;
+
+    /**
+     * @param quota concurrent calls served before answering 429; 0 for no quota
+     */
+    record Settings(Duration medianLatency, Duration p99Latency, double errorRate, double rateLimitRate,
+                    int quota, Duration retryAfter) {
+    }
+
+    private final List<Samples.Sample> samples;
+    private final Settings settings;
+    private final ObjectMapper objectMapper;
+    private final double mu;
+    private final double sigma;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rateLimited = new AtomicLong();
+    private DisposableServer server;
+
+    MockLlmServer(List<Samples.Sample> samples, Settings settings, ObjectMapper objectMapper) {
+        this.samples = new ArrayList<>(samples);
+        this.settings = settings;
+        this.objectMapper = objectMapper;
+        // Log-normal with the given median and 99th percentile
+        double median = Math.max(1, settings.medianLatency().toNanos());
+        double p99 = Math.max(median, settings.p99Latency().toNanos());
+        this.mu = Math.log(median);
+        this.sigma = Math.log(p99 / median) / Z_99;
+    }
+
+    /**
+     * @param port 0 for any free port
+     * @return the bound port
+     */
+    int start(int port) {
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(port)
+                .handle((request, response) -> request.receive().aggregate().asString().defaultIfEmpty("")
+                        .flatMap(body -> answer(body, response)))
+                .bindNow();
+        return server.port();
+    }
+
+    long calls() {
+        return calls.get();
+    }
+
+    long failed() {
+        return failed.get();
+    }
+
+    long rateLimited() {
+        return rateLimited.get();
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Mono<Void> answer(String body, HttpServerResponse response) {
+        calls.incrementAndGet();
+        int concurrent = active.incrementAndGet();
+        double roll = ThreadLocalRandom.current().nextDouble();
+        Mono<Void> answer;
+        if ((settings.quota() > 0 && concurrent > settings.quota()) || roll < settings.rateLimitRate()) {
+            answer = rateLimit(response);
+        } else if (roll < settings.rateLimitRate() + settings.errorRate()) {
+            failed.incrementAndGet();
+            answer = Mono.delay(latency()).then(response.status(HttpResponseStatus.INTERNAL_SERVER_ERROR)
+                    .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                    .sendString(Mono.just("{\"error\":{\"message\":\"injected failure\"}}")).then());
+        } else {
+            JsonNode request = parse(body);
+            String content = content(request.path("messages"));
+            Duration latency = latency();
+            answer = request.path("stream").asBoolean(false)
+                    ? stream(content, latency, response)
+                    : Mono.delay(latency).then(response.header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                            .sendString(Mono.just(completion(content))).then());
+        }
+        return answer.doFinally(signal -> active.decrementAndGet());
+    }
+
+    private Mono<Void> rateLimit(HttpServerResponse response) {
+        rateLimited.incrementAndGet();
+        return response.status(HttpResponseStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaderNames.RETRY_AFTER, String.valueOf(Math.max(1, settings.retryAfter().toSeconds())))
+                .header(HttpHeaderNames.CONTENT_TYPE, "application/json")
+                .sendString(Mono.just("{\"error\":{\"message\":\"rate limited\"}}"))
+                .then();
+    }
+
+    /**
+     * Half of the latency passes before the first token; the rest is spread over the chunks.
+     */
+    private Mono<Void> stream(String content, Duration latency, HttpServerResponse response) {
+        List<String> events = new ArrayList<>();
+        for (int start = 0; start < content.length(); start += STREAM_CHUNK_CHARS) {
+            String delta = content.substring(start, Math.min(content.length(), start + STREAM_CHUNK_CHARS));
+            ObjectNode chunk = objectMapper.createObjectNode();
+            chunk.putArray("choices").addObject().putObject("delta").put("content", delta);
+            events.add("data: " + chunk + "\n\n");
+        }
+        events.add("data: [DONE]\n\n");
+        Duration firstToken = latency.dividedBy(2);
+        Duration perChunk = latency.minus(firstToken).dividedBy(events.size());
+        return response.header(HttpHeaderNames.CONTENT_TYPE, "text/event-stream")
+                .sendString(Mono.delay(firstToken).thenMany(Flux.fromIterable(events).delayElements(perChunk)))
+                .then();
+    }
+
+    private String completion(String content) {
+        ObjectNode completion = objectMapper.createObjectNode();
+        completion.put("object", "chat.completion");
+        completion.putArray("choices").addObject().putObject("message")
+                .put("role", "assistant")
+                .put("content", content);
+        int promptTokens = 50 + ThreadLocalRandom.current().nextInt(200);
+        completion.putObject("usage")
+                .put("prompt_tokens", promptTokens)
+                .put("completion_tokens", content.length() / 4)
+                .put("total_tokens", promptTokens + content.length() / 4);
+        return completion.toString();
+    }
+
+    /**
+     * The canned analysis of the sample the prompt is about, titled with the request's marker so that
+     * every request renders a distinct chart.
+     */
+    private String content(JsonNode messages) {
+        String prompt = messages.isArray() && !messages.isEmpty() ? messages.get(messages.size() - 1).path("content").asText("") : "";
+        Samples.Sample match = samples.get(ThreadLocalRandom.current().nextInt(samples.size()));
+        for (Samples.Sample sample : samples) {
+            if (prompt.contains("User Title: " + sample.title())) {
+                match = sample;
+                break;
+            }
+        }
+        Matcher marker = REQUEST_MARKER.matcher(prompt);
+        if (!marker.find()) {
+            return match.content();
+        }
+        ObjectNode content = (ObjectNode) parse(match.content());
+        content.put("title", content.path("title").asText() + " #" + marker.group(1));
+        return content.toString();
+    }
+
+    private Duration latency() {
+        double nanos = Math.exp(mu + sigma * ThreadLocalRandom.current().nextGaussian());
+        return Duration.ofNanos((long) nanos);
+    }
+
+    private JsonNode parse(String json) {
+        try {
+            return objectMapper.readTree(json);
+        } catch (Exception e) {
+            return objectMapper.createObjectNode();
+        }
+    }
+}
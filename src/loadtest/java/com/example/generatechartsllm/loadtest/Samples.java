@@ -0,0 +1,88 @@
+package com.example.generatechartsllm.loadtest;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.service.ChartInferenceEngine;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The request bodies in {@code samples/} and {@code sample-requests/}, each paired with the analysis the
+ * mock LLM answers with. Files that are empty, malformed or have no {@code data} are skipped with a note.
+ */
+final class Samples {
+
+    private Samples() {
+    }
+
+    /**
+     * @param body    request body as sent to /generate and /analyze
+     * @param title   the sample's title, which the mock looks for in the prompt
+     * @param content completion content: the analysis as the LLM would write it
+     */
+    record Sample(String name, ObjectNode body, String title, String content) {
+    }
+
+    static List<Sample> load(ObjectMapper objectMapper, Path... directories) throws IOException {
+        ChartInferenceEngine engine = new ChartInferenceEngine();
+        List<Sample> samples = new ArrayList<>();
+        for (Path directory : directories) {
+            if (!Files.isDirectory(directory)) {
+                System.out.printf("Skipping %s: not a directory%n", directory);
+                continue;
+            }
+            List<Path> files;
+            try (Stream<Path> listing = Files.list(directory)) {
+                files = listing.filter(file -> file.toString().endsWith(".json")).sorted().toList();
+            }
+            for (Path file : files) {
+                JsonNode body;
+                try {
+                    body = objectMapper.readTree(file.toFile());
+                } catch (IOException e) {
+                    System.out.printf("Skipping %s: %s%n", file, e.getMessage().lines().findFirst().orElse("unreadable"));
+                    continue;
+                }
+                if (body == null || body.isMissingNode() || !body.isObject() || !body.hasNonNull("data")) {
+                    System.out.printf("Skipping %s: no \"data\" to chart%n", file);
+                    continue;
+                }
+                String title = body.path("title").asText(file.getFileName().toString());
+                ChartAnalysis analysis = engine.infer(body.get("data"), title, body.path("description").asText(null));
+                samples.add(new Sample(file.getFileName().toString(), (ObjectNode) body, title,
+                        content(objectMapper, analysis)));
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * The analysis in the JSON layout the prompt asks the LLM for.
+     */
+    private static String content(ObjectMapper objectMapper, ChartAnalysis analysis) {
+        ObjectNode content = objectMapper.createObjectNode();
+        content.put("chartType", analysis.getChartType());
+        content.put("title", analysis.getTitle());
+        content.put("xAxisLabel", analysis.getXAxisLabel());
+        content.put("yAxisLabel", analysis.getYAxisLabel());
+        ArrayNode categories = content.putArray("categories");
+        analysis.getCategories().forEach(categories::add);
+        ObjectNode series = content.putObject("series");
+        analysis.getSeries().forEach((name, values) -> {
+            ArrayNode array = series.putArray(name);
+            for (double value : values) {
+                array.add(value);
+            }
+        });
+        content.put("reasoning", "Canned load-test analysis" + (analysis.getReasoning() != null ? ": " + analysis.getReasoning() : ""));
+        return content.toString();
+    }
+}
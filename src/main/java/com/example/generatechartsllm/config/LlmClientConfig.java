@@ -0,0 +1,78 @@
+package com.example.generatechartsllm.config;
+
+import com.example.generatechartsllm.util.AdaptiveLimiter;
+import com.example.generatechartsllm.util.CircuitBreaker;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Clock;
+import java.time.Duration;
+
+@Configuration
+public class LlmClientConfig {
+
+    /**
+     * Keep-alive pool dedicated to the LLM provider. Idle connections are closed before typical
+     * provider/load-balancer idle cut-offs so that requests do not land on half-closed sockets.
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider llmConnectionProvider(@Value("${chart.llm.pool.max-connections:50}") int maxConnections,
+                                                    @Value("${chart.llm.pool.pending-acquire-timeout:PT10S}") Duration pendingAcquireTimeout,
+                                                    @Value("${chart.llm.pool.max-idle-time:PT30S}") Duration maxIdleTime,
+                                                    @Value("${chart.llm.pool.max-life-time:PT5M}") Duration maxLifeTime) {
+        return ConnectionProvider.builder("llm")
+                .maxConnections(maxConnections)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(Duration.ofSeconds(30))
+                .build();
+    }
+
+    /**
+     * Connect timeout bounds the TCP/TLS handshake; the read timeout bounds any silence while
+     * the response is being received, so a hung provider fails fast instead of holding the request.
+     */
+    @Bean
+    public ClientHttpConnector llmHttpConnector(ConnectionProvider llmConnectionProvider,
+                                                @Value("${chart.llm.connect-timeout:PT5S}") Duration connectTimeout,
+                                                @Value("${chart.llm.read-timeout:PT60S}") Duration readTimeout) {
+        HttpClient httpClient = HttpClient.create(llmConnectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(readTimeout)
+                .keepAlive(true)
+                .compress(true);
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    @Bean
+    public CircuitBreaker llmCircuitBreaker(@Value("${chart.llm.circuit.window-size:20}") int windowSize,
+                                            @Value("${chart.llm.circuit.minimum-calls:10}") int minimumCalls,
+                                            @Value("${chart.llm.circuit.failure-rate-threshold:0.5}") double failureRateThreshold,
+                                            @Value("${chart.llm.circuit.slow-call-threshold:PT30S}") Duration slowCallThreshold,
+                                            @Value("${chart.llm.circuit.open-duration:PT30S}") Duration openDuration) {
+        return new CircuitBreaker("llm", windowSize, minimumCalls, failureRateThreshold,
+                slowCallThreshold, openDuration, Clock.systemUTC());
+    }
+
+    /**
+     * Outbound concurrency to the provider, adapted to its latency and 429s. The maximum should not
+     * exceed the connection pool, or calls past it would wait for a connection instead of a permit.
+     */
+    @Bean
+    public AdaptiveLimiter llmLimiter(@Value("${chart.llm.limiter.initial-limit:8}") int initialLimit,
+                                      @Value("${chart.llm.limiter.min-limit:1}") int minLimit,
+                                      @Value("${chart.llm.limiter.max-limit:50}") int maxLimit,
+                                      @Value("${chart.llm.limiter.backoff-ratio:0.75}") double backoffRatio,
+                                      @Value("${chart.llm.limiter.latency-tolerance:2.0}") double latencyTolerance,
+                                      @Value("${chart.llm.limiter.queue-capacity:1000}") int queueCapacity) {
+        return new AdaptiveLimiter("llm", initialLimit, minLimit, maxLimit, backoffRatio, latencyTolerance, queueCapacity);
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.generatechartsllm.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class RenderSchedulerConfig {
+
+    /**
+     * Dedicated, fixed-size pool for CPU-bound JFreeChart rendering so that slow LLM calls
+     * and rendering never compete for the same threads. The queue is bounded across the whole
+     * pool; once it is full, new renders fail fast with a RejectedExecutionException.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler chartRenderScheduler(@Value("${chart.render.threads:0}") int threads,
+                                          @Value("${chart.render.queue-capacity:256}") int queueCapacity) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), renderThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        return Schedulers.fromExecutorService(executor, "chart-render");
+    }
+
+    private static ThreadFactory renderThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "chart-render-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,22 +1,59 @@
 package com.example.generatechartsllm.controller;
 
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.AnalysisEvent;
+import com.example.generatechartsllm.model.CacheStats;
 import com.example.generatechartsllm.model.ChartAnalysis;
 import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.service.AnalysisCache;
+import com.example.generatechartsllm.service.BatchChartService;
+import com.example.generatechartsllm.service.ChartImageCache;
 import com.example.generatechartsllm.service.ChatClientService;
 import com.example.generatechartsllm.service.ChartService;
+import com.example.generatechartsllm.service.MappingTemplateCache;
+import com.example.generatechartsllm.service.PayloadTooLargeException;
+import com.example.generatechartsllm.service.StreamingIngestService;
+import com.example.generatechartsllm.util.CallPriority;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/api/charts")
@@ -27,44 +64,123 @@ public class ChartController {
 
     private final ChatClientService chatClientService;
     private final ChartService chartService;
+    private final AnalysisCache analysisCache;
+    private final MappingTemplateCache mappingTemplateCache;
+    private final ChartImageCache chartImageCache;
+    private final BatchChartService batchChartService;
+    private final StreamingIngestService streamingIngestService;
+    private final ChartMetrics metrics;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chart.batch.max-items:100}")
+    private int batchMaxItems;
+
+    @Value("${chart.batch.timeout:PT20M}")
+    private Duration batchTimeout;
+
+    @Value("${chart.render.retry-after-seconds:1}")
+    private int renderRetryAfterSeconds;
 
     @PostMapping(value = "/generate", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.IMAGE_PNG_VALUE)
     @Operation(summary = "Generate a chart from JSON data",
-               description = "Accepts JSON data, uses LLM to analyze and recommend the best chart type, then generates and returns the chart as PNG image")
+               description = "Accepts JSON data, uses LLM to analyze and recommend the best chart type, then generates and returns the chart as PNG image. "
+                           + "Responses carry a strong ETag; a matching If-None-Match yields 304 Not Modified")
     @ApiResponses(value = {
         @ApiResponse(responseCode = "200", description = "Chart generated successfully",
                      content = @Content(mediaType = MediaType.IMAGE_PNG_VALUE)),
+        @ApiResponse(responseCode = "304", description = "Chart unchanged since the supplied ETag"),
         @ApiResponse(responseCode = "400", description = "Invalid input data"),
-        @ApiResponse(responseCode = "500", description = "Internal server error")
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Render queue full; retry after the Retry-After delay")
     })
-    public ResponseEntity<byte[]> generateChart(@RequestBody ChartRequest request) {
-        try {
-            log.info("Received chart generation request");
-
-            // Step 1: Call LLM to analyze data and recommend chart type
-            ChartAnalysis analysis = chatClientService.analyzeDataForChart(
-                    request.getData(),
-                    request.getTitle(),
-                    request.getDescription()
-            );
-
-            log.info("LLM recommended chart type: {} - Reasoning: {}",
-                     analysis.getChartType(), analysis.getReasoning());
+    public Mono<ResponseEntity<byte[]>> generateChart(@RequestBody ChartRequest request,
+                                                      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                      @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        log.info("Received chart generation request");
+        recordPayloadSize(contentLength);
 
-            // Step 2: Generate the chart based on LLM analysis
-            byte[] chartImage = chartService.generateChart(analysis);
+        // Step 1: Call LLM to analyze data and recommend chart type
+        Mono<ChartAnalysis> analysis = chatClientService.analyzeDataForChartAsync(
+                request.getData(),
+                request.getTitle(),
+                request.getDescription(),
+                false
+        );
 
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.IMAGE_PNG);
-            headers.setContentLength(chartImage.length);
-            headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=chart.png");
+        // Step 2: Generate the chart based on LLM analysis; a user is waiting, so its LLM call goes first
+        return renderResponse(analysis, request, ifNoneMatch)
+                .contextWrite(CallPriority.INTERACTIVE.context());
+    }
 
-            return new ResponseEntity<>(chartImage, headers, HttpStatus.OK);
+    @PostMapping(value = "/generate", params = "ingest=stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Generate a chart from a large JSON body, streamed",
+               description = "Same as /generate, but the body is read token by token into primitive columns instead of a JSON tree. "
+                           + "Data must be tabular; bodies over chart.ingest.max-bytes are rejected with 413")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chart generated successfully",
+                     content = @Content(mediaType = MediaType.IMAGE_PNG_VALUE)),
+        @ApiResponse(responseCode = "304", description = "Chart unchanged since the supplied ETag"),
+        @ApiResponse(responseCode = "400", description = "Invalid or non-tabular input data"),
+        @ApiResponse(responseCode = "413", description = "Request body too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Render queue full; retry after the Retry-After delay")
+    })
+    public Mono<ResponseEntity<byte[]>> generateChartStreaming(HttpServletRequest servletRequest,
+                                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        log.info("Received streaming chart generation request");
 
+        StreamingIngestService.IngestedRequest ingested;
+        try {
+            ingested = streamingIngestService.ingest(servletRequest.getInputStream(), servletRequest.getContentLengthLong());
         } catch (Exception e) {
-            log.error("Error generating chart: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            return Mono.just(ResponseEntity.status(ingestErrorStatus(e)).build());
         }
+
+        ChartRequest request = ingested.metadata();
+        Mono<ChartAnalysis> analysis = chatClientService.analyzeTableAsync(
+                ingested.table(),
+                request.getTitle(),
+                request.getDescription(),
+                false
+        );
+        return renderResponse(analysis, request, ifNoneMatch)
+                .contextWrite(CallPriority.INTERACTIVE.context());
+    }
+
+    private Mono<ResponseEntity<byte[]>> renderResponse(Mono<ChartAnalysis> analysisMono, ChartRequest request, String ifNoneMatch) {
+        return analysisMono
+                .flatMap(analysis -> {
+                    log.info("LLM recommended chart type: {} - Reasoning: {}",
+                             analysis.getChartType(), analysis.getReasoning());
+
+                    RenderOptions options = chartService.renderOptions(request);
+                    String renderKey = chartService.renderKey(analysis, options);
+                    String etag = "\"" + renderKey + "\"";
+                    if (etagMatches(ifNoneMatch, etag)) {
+                        log.info("Chart unchanged, returning 304");
+                        return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).<byte[]>build());
+                    }
+
+                    return chartService.generateChartAsync(analysis, options, renderKey)
+                            .map(chartImage -> {
+                                HttpHeaders headers = new HttpHeaders();
+                                headers.setContentType(MediaType.IMAGE_PNG);
+                                headers.setETag(etag);
+                                headers.setContentLength(chartImage.length);
+                                headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=chart.png");
+                                return new ResponseEntity<>(chartImage, headers, HttpStatus.OK);
+                            });
+                })
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    log.warn("Render queue full, rejecting chart request");
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(renderRetryAfterSeconds))
+                            .<byte[]>build());
+                })
+                .onErrorResume(e -> {
+                    log.error("Error generating chart: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
     }
 
     @PostMapping(value = "/analyze", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
@@ -77,22 +193,152 @@ public class ChartController {
         @ApiResponse(responseCode = "400", description = "Invalid input data"),
         @ApiResponse(responseCode = "500", description = "Internal server error")
     })
-    public ResponseEntity<ChartAnalysis> analyzeData(@RequestBody ChartRequest request) {
-        try {
-            log.info("Received chart analysis request");
+    public Mono<ResponseEntity<ChartAnalysis>> analyzeData(@RequestBody ChartRequest request,
+                                                           @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        log.info("Received chart analysis request");
+        recordPayloadSize(contentLength);
 
-            ChartAnalysis analysis = chatClientService.analyzeDataForChart(
-                    request.getData(),
-                    request.getTitle(),
-                    request.getDescription()
-            );
+        return chatClientService.analyzeDataForChartAsync(
+                        request.getData(),
+                        request.getTitle(),
+                        request.getDescription(),
+                        !Boolean.FALSE.equals(request.getIncludeReasoning())
+                )
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Error analyzing data: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
+    }
+
+    @PostMapping(value = "/analyze", consumes = MediaType.APPLICATION_JSON_VALUE,
+                 produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Analyze JSON data, streaming the result",
+               description = "Same as /analyze, selected with Accept: text/event-stream or application/x-ndjson. "
+                           + "With chart.llm.stream enabled, a 'field' event is sent for each analysis field as soon as the LLM "
+                           + "produces it; a final 'analysis' event always carries the complete result")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream",
+                     content = @Content(schema = @Schema(implementation = AnalysisEvent.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid input data")
+    })
+    public Flux<AnalysisEvent> analyzeDataEvents(@RequestBody ChartRequest request,
+                                                 @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        log.info("Received streaming-response chart analysis request");
+        recordPayloadSize(contentLength);
 
-            return ResponseEntity.ok(analysis);
+        return chatClientService.analyzeDataForChartEvents(
+                request.getData(),
+                request.getTitle(),
+                request.getDescription(),
+                !Boolean.FALSE.equals(request.getIncludeReasoning())
+        );
+    }
+
+    @PostMapping(value = "/analyze", params = "ingest=stream", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Analyze a large JSON body, streamed",
+               description = "Same as /analyze, but the body is read token by token into primitive columns instead of a JSON tree. "
+                           + "Data must be tabular; bodies over chart.ingest.max-bytes are rejected with 413")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Analysis completed successfully",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartAnalysis.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid or non-tabular input data"),
+        @ApiResponse(responseCode = "413", description = "Request body too large"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<ChartAnalysis>> analyzeDataStreaming(HttpServletRequest servletRequest) {
+        log.info("Received streaming chart analysis request");
 
+        StreamingIngestService.IngestedRequest ingested;
+        try {
+            ingested = streamingIngestService.ingest(servletRequest.getInputStream(), servletRequest.getContentLengthLong());
         } catch (Exception e) {
-            log.error("Error analyzing data: {}", e.getMessage(), e);
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+            return Mono.just(ResponseEntity.status(ingestErrorStatus(e)).build());
+        }
+
+        return chatClientService.analyzeTableAsync(
+                        ingested.table(),
+                        ingested.metadata().getTitle(),
+                        ingested.metadata().getDescription(),
+                        !Boolean.FALSE.equals(ingested.metadata().getIncludeReasoning())
+                )
+                .map(ResponseEntity::ok)
+                .onErrorResume(e -> {
+                    log.error("Error analyzing data: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = "application/zip")
+    @Operation(summary = "Generate many charts in one call",
+               description = "Accepts a list of chart requests, analyzes and renders them concurrently, and streams a ZIP "
+                           + "in completion order. Each chart is written as chart-NNN.png; failed items are written as "
+                           + "chart-NNN.error.txt. A manifest.json with per-item status closes the archive. "
+                           + "The archive must be complete within chart.batch.timeout")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "ZIP archive streamed",
+                     content = @Content(mediaType = "application/zip")),
+        @ApiResponse(responseCode = "400", description = "Empty batch, or too many items to finish within chart.batch.timeout")
+    })
+    public ResponseEntity<StreamingResponseBody> generateBatch(@RequestBody List<ChartRequest> requests,
+                                                               @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength,
+                                                               HttpServletRequest servletRequest) {
+        log.info("Received batch chart request with {} items", requests == null ? 0 : requests.size());
+        recordPayloadSize(contentLength);
+
+        if (requests == null || requests.isEmpty() || requests.size() > batchMaxItems) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (batchChartService.worstCaseDuration(requests.size()).compareTo(batchTimeout) > 0) {
+            log.warn("Rejecting batch of {} items: could take longer than {}", requests.size(), batchTimeout);
+            return ResponseEntity.badRequest().build();
         }
+        // The archive streams for longer than spring.mvc.async.request-timeout allows other requests
+        WebAsyncUtils.getAsyncManager(servletRequest).registerCallableInterceptor(BatchTimeout.class, new BatchTimeout(batchTimeout));
+
+        int width = String.valueOf(requests.size()).length();
+        StreamingResponseBody body = out -> {
+            List<Map<String, Object>> manifest = new ArrayList<>();
+            // Closing the stream cancels the batch, so items still running stop when the client goes away
+            try (Stream<BatchChartService.BatchItem> items = batchChartService.generate(requests).toStream();
+                 ZipOutputStream zip = new ZipOutputStream(out)) {
+                for (Iterator<BatchChartService.BatchItem> it = items.iterator(); it.hasNext(); ) {
+                    BatchChartService.BatchItem item = it.next();
+                    String name = "chart-" + String.format("%0" + Math.max(3, width) + "d", item.index() + 1);
+                    Map<String, Object> entry = new LinkedHashMap<>();
+                    entry.put("index", item.index());
+                    if (item.isSuccess()) {
+                        writeStoredEntry(zip, name + ".png", item.image());
+                        entry.put("file", name + ".png");
+                        entry.put("chartType", item.analysis().getChartType());
+                    } else {
+                        writeStoredEntry(zip, name + ".error.txt", item.error().getBytes(StandardCharsets.UTF_8));
+                        entry.put("file", name + ".error.txt");
+                        entry.put("error", item.error());
+                    }
+                    manifest.add(entry);
+                    zip.flush();
+                }
+                writeStoredEntry(zip, "manifest.json", objectMapper.writeValueAsBytes(manifest));
+            }
+        };
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=charts.zip")
+                .body(body);
+    }
+
+    @GetMapping(value = "/cache/stats", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Cache statistics",
+               description = "Hit, miss and eviction counters for the server-side caches")
+    public ResponseEntity<Map<String, CacheStats>> cacheStats() {
+        Map<String, CacheStats> stats = new LinkedHashMap<>();
+        stats.put("analysis", analysisCache.stats());
+        stats.put("template", mappingTemplateCache.stats());
+        stats.put("image", chartImageCache.stats());
+        return ResponseEntity.ok(stats);
     }
 
     @GetMapping("/health")
@@ -100,5 +346,67 @@ public class ChartController {
     public ResponseEntity<String> health() {
         return ResponseEntity.ok("Chart Generation Service is running");
     }
+
+    private void recordPayloadSize(Long contentLength) {
+        if (contentLength != null) {
+            metrics.recordPayloadSize("tree", contentLength);
+        }
+    }
+
+    private static HttpStatus ingestErrorStatus(Exception e) {
+        if (e instanceof PayloadTooLargeException) {
+            log.warn("Rejected streaming request: {}", e.getMessage());
+            return HttpStatus.PAYLOAD_TOO_LARGE;
+        }
+        if (e instanceof IllegalArgumentException || e instanceof JsonProcessingException) {
+            log.warn("Invalid streaming request: {}", e.getMessage());
+            return HttpStatus.BAD_REQUEST;
+        }
+        log.error("Error reading streaming request: {}", e.getMessage(), e);
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * PNGs are already deflated, so entries are stored rather than compressed again.
+     */
+    private static void writeStoredEntry(ZipOutputStream zip, String name, byte[] content) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        ZipEntry entry = new ZipEntry(name);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(content.length);
+        entry.setCompressedSize(content.length);
+        entry.setCrc(crc.getValue());
+        zip.putNextEntry(entry);
+        zip.write(content);
+        zip.closeEntry();
+    }
+
+    static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || ifNoneMatch.isBlank()) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the batch timeout to the request's async processing before it starts.
+     */
+    private record BatchTimeout(Duration timeout) implements CallableProcessingInterceptor {
+
+        @Override
+        public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+            ((AsyncWebRequest) request).setTimeout(timeout.toMillis());
+        }
+    }
 }
 
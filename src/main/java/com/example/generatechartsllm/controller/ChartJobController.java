@@ -0,0 +1,164 @@
+package com.example.generatechartsllm.controller;
+
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartJob;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.service.ChartJobService;
+import com.example.generatechartsllm.service.ChartJobStore;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/charts/jobs")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Chart Jobs", description = "Asynchronous chart generation: submit now, poll for the result")
+public class ChartJobController {
+
+    private final ChartJobService chartJobService;
+    private final ChartJobStore chartJobStore;
+    private final ChartMetrics metrics;
+
+    @Value("${chart.jobs.max-wait:PT60S}")
+    private Duration maxWait;
+
+    @Value("${chart.jobs.retry-after-seconds:5}")
+    private int retryAfterSeconds;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Submit a chart job",
+               description = "Accepts the same body as /generate and returns a job id immediately. "
+                           + "Jobs are started in priority order (HIGH, NORMAL, LOW), first come first served within a priority")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Job queued; Location points at its status",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartJob.class))),
+        @ApiResponse(responseCode = "400", description = "Unknown priority"),
+        @ApiResponse(responseCode = "500", description = "Job could not be stored"),
+        @ApiResponse(responseCode = "503", description = "Job queue full; retry after the Retry-After delay")
+    })
+    public ResponseEntity<ChartJob> submit(@RequestBody ChartRequest request,
+                                           @Parameter(description = "HIGH, NORMAL (default) or LOW")
+                                           @RequestParam(required = false) String priority,
+                                           @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, required = false) Long contentLength) {
+        if (contentLength != null) {
+            metrics.recordPayloadSize("tree", contentLength);
+        }
+
+        ChartJob.Priority jobPriority;
+        try {
+            jobPriority = ChartJob.Priority.parse(priority);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            ChartJob job = chartJobService.submit(request, jobPriority);
+            return ResponseEntity.accepted()
+                    .location(ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(job.id()).toUri())
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            log.warn("Chart job queue full, rejecting job");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .build();
+        } catch (IOException e) {
+            log.error("Failed to store chart job: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Job status",
+               description = "Returns the job status. With wait, holds the request until the job finishes or the wait "
+                           + "(capped at chart.jobs.max-wait) runs out, whichever comes first")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Current job status",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartJob.class))),
+        @ApiResponse(responseCode = "404", description = "Unknown or evicted job")
+    })
+    public Mono<ResponseEntity<ChartJob>> status(@PathVariable String id,
+                                                 @Parameter(description = "Long-poll duration in seconds")
+                                                 @RequestParam(defaultValue = "0") long wait) {
+        Duration timeout = Duration.ofSeconds(Math.max(0, wait));
+        if (timeout.compareTo(maxWait) > 0) {
+            timeout = maxWait;
+        }
+        return chartJobService.awaitCompletion(id, timeout)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(value = "/{id}/analysis", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Job analysis", description = "The LLM analysis of a succeeded job")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Analysis",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartAnalysis.class))),
+        @ApiResponse(responseCode = "404", description = "Unknown or evicted job"),
+        @ApiResponse(responseCode = "409", description = "Job has not succeeded; see its status")
+    })
+    public ResponseEntity<ChartAnalysis> analysis(@PathVariable String id) {
+        try {
+            return result(id, chartJobStore.readAnalysis(id));
+        } catch (IOException e) {
+            log.error("Failed to read analysis of chart job {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    @GetMapping(value = "/{id}/chart", produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Job chart", description = "The rendered PNG of a succeeded job")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chart image",
+                     content = @Content(mediaType = MediaType.IMAGE_PNG_VALUE)),
+        @ApiResponse(responseCode = "404", description = "Unknown or evicted job"),
+        @ApiResponse(responseCode = "409", description = "Job has not succeeded; see its status")
+    })
+    public ResponseEntity<byte[]> chart(@PathVariable String id) {
+        try {
+            ResponseEntity<byte[]> response = result(id, chartJobStore.readImage(id));
+            if (response.getStatusCode() != HttpStatus.OK) {
+                return response;
+            }
+            return ResponseEntity.ok()
+                    .contentType(MediaType.IMAGE_PNG)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=chart.png")
+                    .body(response.getBody());
+        } catch (IOException e) {
+            log.error("Failed to read chart of chart job {}: {}", id, e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    private <T> ResponseEntity<T> result(String id, Optional<T> result) {
+        if (result.isPresent()) {
+            return ResponseEntity.ok(result.get());
+        }
+        return chartJobService.status(id).isPresent()
+                ? ResponseEntity.status(HttpStatus.CONFLICT).build()
+                : ResponseEntity.notFound().build();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.generatechartsllm.controller;
+
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.ChartSessionInfo;
+import com.example.generatechartsllm.model.ChartSessionUpdate;
+import com.example.generatechartsllm.service.ChartSessionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+@RequestMapping("/api/charts/sessions")
+@RequiredArgsConstructor
+@Slf4j
+@Tag(name = "Chart Sessions", description = "Live charts: analyze once, then send only new points")
+public class ChartSessionController {
+
+    private final ChartSessionService chartSessionService;
+
+    @Value("${chart.sessions.retry-after-seconds:30}")
+    private int sessionsRetryAfterSeconds;
+
+    @Value("${chart.render.retry-after-seconds:1}")
+    private int renderRetryAfterSeconds;
+
+    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Open a chart session",
+               description = "Accepts the same body as /generate and analyzes it once. The session keeps the last "
+                           + "window points of the data; later updates only send new points")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "201", description = "Session opened; Location points at it",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartSessionInfo.class))),
+        @ApiResponse(responseCode = "400", description = "Window out of range"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Too many open sessions; retry after the Retry-After delay")
+    })
+    public Mono<ResponseEntity<ChartSessionInfo>> create(@RequestBody ChartRequest request,
+                                                         @Parameter(description = "Points to keep (default chart.sessions.window)")
+                                                         @RequestParam(required = false) Integer window) {
+        // Built up front: the request context is not available on the thread that completes the analysis
+        UriComponentsBuilder location = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}");
+        Mono<ChartSessionInfo> session;
+        try {
+            session = chartSessionService.create(request, window);
+        } catch (IllegalArgumentException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        return session
+                .map(info -> ResponseEntity.created(location.buildAndExpand(info.id()).toUri()).body(info))
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    log.warn("Too many open chart sessions, rejecting session");
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(sessionsRetryAfterSeconds))
+                            .<ChartSessionInfo>build());
+                })
+                .onErrorResume(e -> {
+                    log.error("Error opening chart session: {}", e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
+    }
+
+    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Session state")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Current session state",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartSessionInfo.class))),
+        @ApiResponse(responseCode = "404", description = "Unknown, closed or evicted session")
+    })
+    public ResponseEntity<ChartSessionInfo> get(@PathVariable String id) {
+        return ResponseEntity.of(chartSessionService.get(id));
+    }
+
+    @PostMapping(value = "/{id}/points", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Add points to a session",
+               description = "Appends the points, sliding the oldest ones out of the window. A point whose category "
+                           + "equals the newest category updates that point instead")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Points added; the session's new state",
+                     content = @Content(mediaType = MediaType.APPLICATION_JSON_VALUE,
+                                      schema = @Schema(implementation = ChartSessionInfo.class))),
+        @ApiResponse(responseCode = "400", description = "Missing categories, unknown series or misaligned values"),
+        @ApiResponse(responseCode = "404", description = "Unknown, closed or evicted session")
+    })
+    public ResponseEntity<ChartSessionInfo> append(@PathVariable String id, @RequestBody ChartSessionUpdate update) {
+        try {
+            Optional<ChartSessionInfo> info = chartSessionService.append(id, update);
+            return ResponseEntity.of(info);
+        } catch (IllegalArgumentException e) {
+            log.info("Rejected update to chart session {}: {}", id, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/{id}/chart", produces = MediaType.IMAGE_PNG_VALUE)
+    @Operation(summary = "Session chart",
+               description = "Renders the session's current window. The ETag changes with every update; "
+                           + "a matching If-None-Match yields 304 Not Modified")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Chart image",
+                     content = @Content(mediaType = MediaType.IMAGE_PNG_VALUE)),
+        @ApiResponse(responseCode = "304", description = "No update since the supplied ETag"),
+        @ApiResponse(responseCode = "404", description = "Unknown, closed or evicted session"),
+        @ApiResponse(responseCode = "500", description = "Internal server error"),
+        @ApiResponse(responseCode = "503", description = "Render queue full; retry after the Retry-After delay")
+    })
+    public Mono<ResponseEntity<byte[]>> chart(@PathVariable String id,
+                                              @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        Optional<ChartSessionInfo> info = chartSessionService.get(id);
+        if (info.isEmpty()) {
+            return Mono.just(ResponseEntity.notFound().build());
+        }
+        String current = etag(id, info.get().version());
+        if (ChartController.etagMatches(ifNoneMatch, current)) {
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(current).build());
+        }
+
+        return chartSessionService.render(id)
+                .map(chart -> {
+                    HttpHeaders headers = new HttpHeaders();
+                    headers.setContentType(MediaType.IMAGE_PNG);
+                    headers.setETag(etag(id, chart.version()));
+                    headers.setContentLength(chart.image().length);
+                    headers.set(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=chart.png");
+                    return new ResponseEntity<>(chart.image(), headers, HttpStatus.OK);
+                })
+                .defaultIfEmpty(ResponseEntity.notFound().build())
+                .onErrorResume(RejectedExecutionException.class, e -> {
+                    log.warn("Render queue full, rejecting session chart request");
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                            .header(HttpHeaders.RETRY_AFTER, String.valueOf(renderRetryAfterSeconds))
+                            .<byte[]>build());
+                })
+                .onErrorResume(e -> {
+                    log.error("Error rendering chart session {}: {}", id, e.getMessage(), e);
+                    return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+                });
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Close a session")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Session closed"),
+        @ApiResponse(responseCode = "404", description = "Unknown, closed or evicted session")
+    })
+    public ResponseEntity<Void> close(@PathVariable String id) {
+        return chartSessionService.close(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    private static String etag(String id, long version) {
+        return "\"" + id + "-" + version + "\"";
+    }
+}
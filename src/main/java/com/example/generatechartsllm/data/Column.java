@@ -0,0 +1,151 @@
+package com.example.generatechartsllm.data;
+
+import java.util.Arrays;
+import java.util.regex.Pattern;
+
+/**
+ * A single column of a {@link DataTable}. Numeric cells live in a primitive array (NaN when
+ * absent or non-numeric); text cells are only stored for values that are not numbers.
+ */
+public class Column {
+
+    private static final Pattern TEMPORAL_NAME = Pattern.compile("(?i).*(year|date|time|month|day|week|quarter|period).*");
+
+    private final String name;
+    private double[] numbers;
+    private String[] texts;
+    private int size;
+    private int numericCount;
+    private int textCount;
+    private int temporalTextCount;
+    private ColumnType type;
+
+    public Column(String name) {
+        this.name = name;
+        this.numbers = new double[16];
+    }
+
+    public void appendNumber(double value) {
+        ensureCapacity();
+        numbers[size++] = value;
+        numericCount++;
+        type = null;
+    }
+
+    public void appendText(String value) {
+        ensureCapacity();
+        if (texts == null) {
+            texts = new String[numbers.length];
+        }
+        numbers[size] = Double.NaN;
+        texts[size++] = value;
+        textCount++;
+        if (TemporalPatterns.matches(value)) {
+            temporalTextCount++;
+        }
+        type = null;
+    }
+
+    public void appendMissing() {
+        ensureCapacity();
+        numbers[size++] = Double.NaN;
+        type = null;
+    }
+
+    /**
+     * Pads the column with missing cells up to the given row count.
+     */
+    public void padTo(int rows) {
+        while (size < rows) {
+            appendMissing();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumericCount() {
+        return numericCount;
+    }
+
+    public int getTextCount() {
+        return textCount;
+    }
+
+    public int getMissingCount() {
+        return size - numericCount - textCount;
+    }
+
+    public double number(int row) {
+        return numbers[row];
+    }
+
+    /**
+     * Display label for the cell: its text, or the number formatted without a trailing ".0".
+     */
+    public String label(int row) {
+        if (texts != null && texts[row] != null) {
+            return texts[row];
+        }
+        double value = numbers[row];
+        if (Double.isNaN(value)) {
+            return null;
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Copy of the numeric cells, trimmed to the column size.
+     */
+    public double[] numbers() {
+        return Arrays.copyOf(numbers, size);
+    }
+
+    public ColumnType getType() {
+        if (type == null) {
+            type = detectType();
+        }
+        return type;
+    }
+
+    private ColumnType detectType() {
+        if (textCount == 0 && numericCount > 0) {
+            if (TEMPORAL_NAME.matcher(name).matches() && looksLikeYears()) {
+                return ColumnType.TEMPORAL;
+            }
+            return ColumnType.NUMERIC;
+        }
+        if (textCount > 0 && temporalTextCount == textCount) {
+            return ColumnType.TEMPORAL;
+        }
+        return ColumnType.CATEGORICAL;
+    }
+
+    private boolean looksLikeYears() {
+        for (int i = 0; i < size; i++) {
+            double value = numbers[i];
+            if (!Double.isNaN(value) && (value != Math.rint(value) || value < 1900 || value > 2100)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void ensureCapacity() {
+        if (size == numbers.length) {
+            int capacity = numbers.length * 2;
+            numbers = Arrays.copyOf(numbers, capacity);
+            if (texts != null) {
+                texts = Arrays.copyOf(texts, capacity);
+            }
+        }
+    }
+}
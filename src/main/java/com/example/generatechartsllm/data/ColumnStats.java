@@ -0,0 +1,57 @@
+package com.example.generatechartsllm.data;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Summary statistics for one column. Cardinality is counted exactly up to
+ * {@link #CARDINALITY_CAP} distinct values and reported as a lower bound beyond that.
+ */
+public record ColumnStats(String name, ColumnType type, int count, int missing,
+                          double min, double max, double mean,
+                          int distinct, boolean distinctCapped, List<String> examples) {
+
+    public static final int CARDINALITY_CAP = 10_000;
+    private static final int MAX_EXAMPLES = 5;
+
+    public static ColumnStats of(Column column) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        double sum = 0;
+        int numeric = 0;
+        Set<Object> distinct = new HashSet<>();
+        boolean capped = false;
+        Set<String> examples = new LinkedHashSet<>();
+
+        for (int row = 0; row < column.size(); row++) {
+            double value = column.number(row);
+            String label = Double.isNaN(value) ? column.label(row) : null;
+            if (!Double.isNaN(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                sum += value;
+                numeric++;
+            }
+            Object key = label != null ? label : Double.isNaN(value) ? null : value;
+            if (key != null) {
+                if (distinct.size() < CARDINALITY_CAP) {
+                    distinct.add(key);
+                } else if (!distinct.contains(key)) {
+                    capped = true;
+                }
+                if (label != null && examples.size() < MAX_EXAMPLES) {
+                    examples.add(label);
+                }
+            }
+        }
+
+        return new ColumnStats(column.getName(), column.getType(),
+                column.size() - column.getMissingCount(), column.getMissingCount(),
+                numeric > 0 ? min : Double.NaN, numeric > 0 ? max : Double.NaN,
+                numeric > 0 ? sum / numeric : Double.NaN,
+                distinct.size(), capped, new ArrayList<>(examples));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.generatechartsllm.data;
+
+public enum ColumnType {
+    NUMERIC,
+    TEMPORAL,
+    CATEGORICAL
+}
@@ -0,0 +1,97 @@
+package com.example.generatechartsllm.data;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Column-oriented view of a chart payload, independent of how the JSON was laid out.
+ * Columns keep first-seen order and are padded so that every column has {@link #getRowCount()} cells.
+ */
+public class DataTable {
+
+    private final Layout layout;
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private int rowCount;
+
+    public DataTable(Layout layout) {
+        this.layout = layout;
+    }
+
+    public Layout getLayout() {
+        return layout;
+    }
+
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    public List<Column> getColumns() {
+        return Collections.unmodifiableList(new ArrayList<>(columns.values()));
+    }
+
+    public Column getColumn(String name) {
+        return columns.get(name);
+    }
+
+    /**
+     * Returns the named column, creating it (padded with missing cells) if this is the first time it is seen.
+     */
+    public Column column(String name) {
+        return columns.computeIfAbsent(name, key -> {
+            Column column = new Column(key);
+            column.padTo(rowCount);
+            return column;
+        });
+    }
+
+    /**
+     * Closes the current row: every column that did not receive a cell gets a missing one.
+     */
+    public void endRow() {
+        rowCount++;
+        for (Column column : columns.values()) {
+            column.padTo(rowCount);
+        }
+    }
+
+    /**
+     * For tables filled column by column: sets the row count to the longest column and pads the others.
+     */
+    public void padColumns() {
+        for (Column column : columns.values()) {
+            rowCount = Math.max(rowCount, column.size());
+        }
+        for (Column column : columns.values()) {
+            column.padTo(rowCount);
+        }
+    }
+
+    public List<Column> columnsOfType(ColumnType type) {
+        List<Column> result = new ArrayList<>();
+        for (Column column : columns.values()) {
+            if (column.getType() == type) {
+                result.add(column);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * How the source JSON was arranged before being normalized into columns.
+     */
+    public enum Layout {
+        /** Array of objects, one object per row. */
+        ROWS,
+        /** Object mapping a label to a scalar, e.g. {"Jan": 10, "Feb": 12}. */
+        KEYED_VALUES,
+        /** Object mapping a label to an object of values, e.g. {"Q1": {"revenue": 1, "cost": 2}}. */
+        KEYED_ROWS,
+        /** Object of parallel arrays, e.g. {"month": [...], "sales": [...]}. */
+        COLUMNAR,
+        /** Plain array of numbers. */
+        VALUES
+    }
+}
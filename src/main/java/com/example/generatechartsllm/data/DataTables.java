@@ -0,0 +1,149 @@
+package com.example.generatechartsllm.data;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Builds {@link DataTable}s from the JSON shapes clients commonly send.
+ */
+public final class DataTables {
+
+    public static final String KEY_COLUMN = "Category";
+    public static final String VALUE_COLUMN = "Value";
+    public static final String INDEX_COLUMN = "Index";
+
+    private static final Pattern NUMERIC_TEXT = Pattern.compile("\\s*[-+]?(?:\\d+\\.?\\d*|\\.\\d+)(?:[eE][-+]?\\d+)?\\s*");
+
+    private DataTables() {
+    }
+
+    /**
+     * Normalizes the payload into a table, or returns {@code null} when its shape is not tabular.
+     * A single-field object wrapping an array or object (e.g. {"sales": [...]}) is unwrapped first.
+     */
+    public static DataTable fromJson(JsonNode data) {
+        if (data == null) {
+            return null;
+        }
+        JsonNode node = data;
+        while (node.isObject() && node.size() == 1 && node.elements().next().isContainerNode()) {
+            node = node.elements().next();
+        }
+
+        if (node.isArray()) {
+            return fromArray(node);
+        }
+        if (node.isObject() && node.size() > 0) {
+            return fromObject(node);
+        }
+        return null;
+    }
+
+    private static DataTable fromArray(JsonNode array) {
+        if (array.size() == 0) {
+            return null;
+        }
+        boolean allObjects = true;
+        boolean allScalars = true;
+        for (JsonNode item : array) {
+            allObjects &= item.isObject();
+            allScalars &= item.isValueNode() || item.isNull();
+        }
+
+        if (allObjects) {
+            DataTable table = new DataTable(DataTable.Layout.ROWS);
+            for (JsonNode item : array) {
+                appendFields(table, item);
+                table.endRow();
+            }
+            return table;
+        }
+        if (allScalars) {
+            DataTable table = new DataTable(DataTable.Layout.VALUES);
+            int index = 0;
+            for (JsonNode item : array) {
+                table.column(INDEX_COLUMN).appendText("Item " + (++index));
+                append(table.column(VALUE_COLUMN), item);
+                table.endRow();
+            }
+            return table;
+        }
+        return null;
+    }
+
+    private static DataTable fromObject(JsonNode object) {
+        boolean allScalars = true;
+        boolean allObjects = true;
+        boolean allArrays = true;
+        int arrayLength = -1;
+        for (JsonNode value : object) {
+            allScalars &= value.isValueNode() || value.isNull();
+            allObjects &= value.isObject();
+            if (value.isArray()) {
+                arrayLength = Math.max(arrayLength, value.size());
+            } else {
+                allArrays = false;
+            }
+        }
+
+        if (allScalars) {
+            DataTable table = new DataTable(DataTable.Layout.KEYED_VALUES);
+            object.fields().forEachRemaining(field -> {
+                table.column(KEY_COLUMN).appendText(field.getKey());
+                append(table.column(VALUE_COLUMN), field.getValue());
+                table.endRow();
+            });
+            return table;
+        }
+        if (allObjects) {
+            DataTable table = new DataTable(DataTable.Layout.KEYED_ROWS);
+            object.fields().forEachRemaining(field -> {
+                table.column(KEY_COLUMN).appendText(field.getKey());
+                appendFields(table, field.getValue());
+                table.endRow();
+            });
+            return table;
+        }
+        if (allArrays && arrayLength > 0) {
+            DataTable table = new DataTable(DataTable.Layout.COLUMNAR);
+            for (int row = 0; row < arrayLength; row++) {
+                Iterator<Map.Entry<String, JsonNode>> fields = object.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    // Shorter arrays are padded with missing cells
+                    append(table.column(field.getKey()), field.getValue().get(row));
+                }
+                table.endRow();
+            }
+            return table;
+        }
+        return null;
+    }
+
+    private static void appendFields(DataTable table, JsonNode object) {
+        object.fields().forEachRemaining(field -> {
+            if (field.getValue().isValueNode() || field.getValue().isNull()) {
+                append(table.column(field.getKey()), field.getValue());
+            }
+        });
+    }
+
+    static boolean isNumeric(String text) {
+        return NUMERIC_TEXT.matcher(text).matches();
+    }
+
+    private static void append(Column column, JsonNode value) {
+        if (value == null || value.isNull()) {
+            column.appendMissing();
+        } else if (value.isNumber()) {
+            column.appendNumber(value.asDouble());
+        } else if (value.isTextual() && isNumeric(value.asText())) {
+            column.appendNumber(Double.parseDouble(value.asText().trim()));
+        } else {
+            column.appendText(value.asText());
+        }
+    }
+}
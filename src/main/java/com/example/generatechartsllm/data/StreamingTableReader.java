@@ -0,0 +1,188 @@
+package com.example.generatechartsllm.data;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+/**
+ * Builds a {@link DataTable} token by token from a {@link JsonParser}, without materializing a
+ * JSON tree. Supports the same layouts as {@link DataTables#fromJson}, with one level of
+ * single-field wrapper (e.g. {"sales": [...]}) instead of arbitrary nesting.
+ */
+public final class StreamingTableReader {
+
+    private StreamingTableReader() {
+    }
+
+    /**
+     * Reads the value the parser is positioned on and leaves the parser on its closing token.
+     *
+     * @throws IllegalArgumentException when the value is not tabular
+     */
+    public static DataTable read(JsonParser parser) throws IOException {
+        JsonToken token = parser.currentToken();
+        if (token == JsonToken.START_ARRAY) {
+            return readArray(parser);
+        }
+        if (token == JsonToken.START_OBJECT) {
+            return readObject(parser);
+        }
+        throw new IllegalArgumentException("Data must be a JSON object or array");
+    }
+
+    private static DataTable readArray(JsonParser parser) throws IOException {
+        JsonToken token = parser.nextToken();
+        if (token == JsonToken.END_ARRAY) {
+            throw new IllegalArgumentException("Data array is empty");
+        }
+
+        if (token == JsonToken.START_OBJECT) {
+            DataTable table = new DataTable(DataTable.Layout.ROWS);
+            while (token == JsonToken.START_OBJECT) {
+                readFields(parser, table);
+                table.endRow();
+                token = parser.nextToken();
+            }
+            requireEnd(token, JsonToken.END_ARRAY, "Data array mixes objects with other values");
+            return table;
+        }
+
+        DataTable table = new DataTable(DataTable.Layout.VALUES);
+        int index = 0;
+        while (token.isScalarValue()) {
+            table.column(DataTables.INDEX_COLUMN).appendText("Item " + (++index));
+            append(table.column(DataTables.VALUE_COLUMN), parser, token);
+            table.endRow();
+            token = parser.nextToken();
+        }
+        requireEnd(token, JsonToken.END_ARRAY, "Data array mixes scalars with other values");
+        return table;
+    }
+
+    private static DataTable readObject(JsonParser parser) throws IOException {
+        DataTable table = null;
+        int fields = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.currentName();
+            JsonToken token = parser.nextToken();
+            fields++;
+
+            if (token == JsonToken.START_ARRAY) {
+                JsonToken first = parser.nextToken();
+                if (first == JsonToken.START_OBJECT) {
+                    if (fields > 1) {
+                        throw new IllegalArgumentException("Only a single array of rows may be wrapped in an object");
+                    }
+                    table = new DataTable(DataTable.Layout.ROWS);
+                    for (JsonToken row = first; row == JsonToken.START_OBJECT; row = parser.nextToken()) {
+                        readFields(parser, table);
+                        table.endRow();
+                    }
+                    requireEnd(parser.currentToken(), JsonToken.END_ARRAY, "Row array mixes objects with other values");
+                } else {
+                    table = expect(table, DataTable.Layout.COLUMNAR);
+                    Column column = table.column(key);
+                    for (JsonToken cell = first; cell != JsonToken.END_ARRAY; cell = parser.nextToken()) {
+                        if (cell.isStructStart()) {
+                            throw new IllegalArgumentException("Column '" + key + "' contains nested values");
+                        }
+                        append(column, parser, cell);
+                    }
+                }
+            } else if (token == JsonToken.START_OBJECT) {
+                table = expect(table, DataTable.Layout.KEYED_ROWS);
+                table.column(DataTables.KEY_COLUMN).appendText(key);
+                readFields(parser, table);
+                table.endRow();
+            } else {
+                table = expect(table, DataTable.Layout.KEYED_VALUES);
+                table.column(DataTables.KEY_COLUMN).appendText(key);
+                append(table.column(DataTables.VALUE_COLUMN), parser, token);
+                table.endRow();
+            }
+        }
+
+        if (table == null) {
+            throw new IllegalArgumentException("Data object is empty");
+        }
+        if (table.getLayout() == DataTable.Layout.COLUMNAR) {
+            table.padColumns();
+        }
+        if (fields == 1 && table.getLayout() == DataTable.Layout.KEYED_ROWS) {
+            return unwrapSingleRow(table);
+        }
+        return table;
+    }
+
+    /**
+     * {"wrapper": {"Jan": 1, "Feb": 2}} reads as one keyed row; it is really a list of keyed values.
+     */
+    private static DataTable unwrapSingleRow(DataTable table) {
+        DataTable values = new DataTable(DataTable.Layout.KEYED_VALUES);
+        for (Column column : table.getColumns()) {
+            if (DataTables.KEY_COLUMN.equals(column.getName())) {
+                continue;
+            }
+            values.column(DataTables.KEY_COLUMN).appendText(column.getName());
+            Column value = values.column(DataTables.VALUE_COLUMN);
+            double number = column.number(0);
+            if (!Double.isNaN(number)) {
+                value.appendNumber(number);
+            } else if (column.label(0) != null) {
+                value.appendText(column.label(0));
+            } else {
+                value.appendMissing();
+            }
+            values.endRow();
+        }
+        return values;
+    }
+
+    private static DataTable expect(DataTable table, DataTable.Layout layout) {
+        if (table == null) {
+            return new DataTable(layout);
+        }
+        if (table.getLayout() != layout) {
+            throw new IllegalArgumentException("Data object mixes " + table.getLayout() + " and " + layout + " values");
+        }
+        return table;
+    }
+
+    /**
+     * Appends the scalar fields of the current object to the table's current row; nested values are skipped.
+     */
+    private static void readFields(JsonParser parser, DataTable table) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            if (token.isStructStart()) {
+                parser.skipChildren();
+            } else {
+                append(table.column(name), parser, token);
+            }
+        }
+    }
+
+    private static void append(Column column, JsonParser parser, JsonToken token) throws IOException {
+        switch (token) {
+            case VALUE_NUMBER_INT, VALUE_NUMBER_FLOAT -> column.appendNumber(parser.getDoubleValue());
+            case VALUE_NULL -> column.appendMissing();
+            case VALUE_STRING -> {
+                String text = parser.getText();
+                if (DataTables.isNumeric(text)) {
+                    column.appendNumber(Double.parseDouble(text.trim()));
+                } else {
+                    column.appendText(text);
+                }
+            }
+            default -> column.appendText(parser.getText());
+        }
+    }
+
+    private static void requireEnd(JsonToken token, JsonToken expected, String message) {
+        if (token != expected) {
+            throw new IllegalArgumentException(message);
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.generatechartsllm.data;
+
+import java.util.regex.Pattern;
+
+/**
+ * Recognizes labels that denote points in time: month and day names, quarters, halves,
+ * weeks, fiscal years, plain years and ISO-style dates.
+ */
+public final class TemporalPatterns {
+
+    private static final Pattern TEMPORAL = Pattern.compile(
+            "(?i)^(?:"
+                    + "(?:jan(?:uary)?|feb(?:ruary)?|mar(?:ch)?|apr(?:il)?|may|june?|july?|aug(?:ust)?"
+                    + "|sep(?:t(?:ember)?)?|oct(?:ober)?|nov(?:ember)?|dec(?:ember)?)(?:[ -/']?\\d{2,4})?"
+                    + "|(?:mon|tue|wed|thu|fri|sat|sun)(?:day|sday|nesday|rsday|urday)?"
+                    + "|(?:\\d{4}[ -]?)?(?:q[1-4]|h[12])(?:[ -]?\\d{4})?"
+                    + "|(?:week|wk|w)[ -]?\\d{1,2}(?:[ -]\\d{4})?"
+                    + "|fy[ -]?\\d{2,4}"
+                    + "|(?:19|20)\\d{2}"
+                    + "|\\d{4}[-/.]\\d{1,2}(?:[-/.]\\d{1,2})?(?:[t ][0-9:.]+z?(?:[+-]\\d{2}:?\\d{2})?)?"
+                    + "|\\d{1,2}[-/.]\\d{1,2}[-/.]\\d{2,4}"
+                    + ")$");
+
+    private TemporalPatterns() {
+    }
+
+    public static boolean matches(String value) {
+        return value != null && TEMPORAL.matcher(value.trim()).matches();
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.generatechartsllm.dataset;
+
+import com.example.generatechartsllm.model.SeriesData;
+import org.jfree.data.UnknownKeyException;
+import org.jfree.data.category.CategoryDataset;
+import org.jfree.data.general.AbstractDataset;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only {@link CategoryDataset} over primitive arrays, replacing DefaultCategoryDataset's
+ * per-cell boxed values. Categories are mapped to dense column indices in first-seen order;
+ * a repeated category label keeps its first position and its last value, as DefaultCategoryDataset does.
+ */
+public class ColumnarCategoryDataset extends AbstractDataset implements CategoryDataset {
+
+    private final List<String> rowKeys;
+    private final List<String> columnKeys;
+    private final Map<String, Integer> rowIndex = new HashMap<>();
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final double[][] values;
+
+    /**
+     * @param rows the rows (indices into categories and series) to include, ascending
+     */
+    public ColumnarCategoryDataset(SeriesData series, List<String> categories, int[] rows) {
+        this.rowKeys = new ArrayList<>(series.names());
+        for (int i = 0; i < rowKeys.size(); i++) {
+            rowIndex.put(rowKeys.get(i), i);
+        }
+        this.columnKeys = new ArrayList<>();
+        this.values = new double[series.size()][rows.length];
+        for (double[] row : values) {
+            Arrays.fill(row, Double.NaN);
+        }
+
+        for (int row : rows) {
+            if (row >= categories.size() || !hasValueAt(series, row)) {
+                continue;
+            }
+            String category = categories.get(row);
+            Integer column = columnIndex.get(category);
+            if (column == null) {
+                column = columnKeys.size();
+                columnIndex.put(category, column);
+                columnKeys.add(category);
+            }
+            for (int s = 0; s < series.size(); s++) {
+                double[] seriesValues = series.values(s);
+                if (row < seriesValues.length) {
+                    values[s][column] = seriesValues[row];
+                }
+            }
+        }
+    }
+
+    private static boolean hasValueAt(SeriesData series, int row) {
+        for (int s = 0; s < series.size(); s++) {
+            if (row < series.values(s).length) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public Comparable getRowKey(int row) {
+        return rowKeys.get(row);
+    }
+
+    @Override
+    public int getRowIndex(Comparable key) {
+        Integer index = rowIndex.get(key);
+        return index != null ? index : -1;
+    }
+
+    @Override
+    public List getRowKeys() {
+        return Collections.unmodifiableList(rowKeys);
+    }
+
+    @Override
+    public Comparable getColumnKey(int column) {
+        return columnKeys.get(column);
+    }
+
+    @Override
+    public int getColumnIndex(Comparable key) {
+        Integer index = columnIndex.get(key);
+        return index != null ? index : -1;
+    }
+
+    @Override
+    public List getColumnKeys() {
+        return Collections.unmodifiableList(columnKeys);
+    }
+
+    @Override
+    public Number getValue(Comparable rowKey, Comparable columnKey) {
+        int row = getRowIndex(rowKey);
+        if (row < 0) {
+            throw new UnknownKeyException("Unknown row key: " + rowKey);
+        }
+        int column = getColumnIndex(columnKey);
+        if (column < 0) {
+            throw new UnknownKeyException("Unknown column key: " + columnKey);
+        }
+        return getValue(row, column);
+    }
+
+    @Override
+    public int getRowCount() {
+        return rowKeys.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columnKeys.size();
+    }
+
+    @Override
+    public Number getValue(int row, int column) {
+        double value = values[row][column];
+        return Double.isNaN(value) ? null : value;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.generatechartsllm.dataset;
+
+import org.jfree.data.DomainOrder;
+import org.jfree.data.xy.AbstractXYDataset;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read-only XY dataset over primitive arrays where x is the point's index in its series.
+ * Renderers read through the primitive {@link #getXValue}/{@link #getYValue} accessors.
+ */
+public class ColumnarXYDataset extends AbstractXYDataset {
+
+    private final List<String> keys = new ArrayList<>();
+    private final List<int[]> indices = new ArrayList<>();
+    private final List<double[]> values = new ArrayList<>();
+
+    /**
+     * @param rows ascending indices of the points to plot
+     */
+    public void addSeries(String key, double[] seriesValues, int[] rows) {
+        keys.add(key);
+        indices.add(rows);
+        values.add(seriesValues);
+    }
+
+    @Override
+    public int getSeriesCount() {
+        return keys.size();
+    }
+
+    @Override
+    public Comparable getSeriesKey(int series) {
+        return keys.get(series);
+    }
+
+    @Override
+    public int getItemCount(int series) {
+        return indices.get(series).length;
+    }
+
+    @Override
+    public Number getX(int series, int item) {
+        return getXValue(series, item);
+    }
+
+    @Override
+    public Number getY(int series, int item) {
+        return getYValue(series, item);
+    }
+
+    @Override
+    public double getXValue(int series, int item) {
+        return indices.get(series)[item];
+    }
+
+    @Override
+    public double getYValue(int series, int item) {
+        return values.get(series)[indices.get(series)[item]];
+    }
+
+    @Override
+    public DomainOrder getDomainOrder() {
+        return DomainOrder.ASCENDING;
+    }
+}
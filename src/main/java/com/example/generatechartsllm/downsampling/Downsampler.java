@@ -0,0 +1,21 @@
+package com.example.generatechartsllm.downsampling;
+
+/**
+ * Reduces a series plotted against its index to at most roughly {@code target} points while
+ * preserving its visual shape.
+ */
+public interface Downsampler {
+
+    /**
+     * @return ascending indices of the points to keep; all indices when no reduction is needed
+     */
+    int[] select(double[] values, int target);
+
+    static int[] all(int length) {
+        int[] indices = new int[length];
+        for (int i = 0; i < length; i++) {
+            indices[i] = i;
+        }
+        return indices;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.generatechartsllm.downsampling;
+
+import java.util.Locale;
+
+public enum DownsamplingMode {
+    /** LTTB for line charts, min/max for scatter plots. */
+    AUTO,
+    LTTB,
+    MINMAX,
+    NONE;
+
+    private static final Downsampler LTTB_DOWNSAMPLER = new LttbDownsampler();
+    private static final Downsampler MIN_MAX_DOWNSAMPLER = new MinMaxDownsampler();
+
+    /**
+     * Lenient parse for request values; null or unknown values mean {@link #AUTO}.
+     */
+    public static DownsamplingMode parse(String value) {
+        if (value == null || value.isBlank()) {
+            return AUTO;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return AUTO;
+        }
+    }
+
+    /**
+     * @return the downsampler for this mode and chart type, or null when the series should be kept intact
+     */
+    public Downsampler downsamplerFor(String chartType) {
+        return switch (this) {
+            case LTTB -> LTTB_DOWNSAMPLER;
+            case MINMAX -> MIN_MAX_DOWNSAMPLER;
+            case NONE -> null;
+            case AUTO -> "SCATTER".equalsIgnoreCase(chartType) ? MIN_MAX_DOWNSAMPLER : LTTB_DOWNSAMPLER;
+        };
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.generatechartsllm.downsampling;
+
+/**
+ * Largest-Triangle-Three-Buckets (Steinarsson, 2013). Keeps the first and last points and, for
+ * each bucket in between, the point forming the largest triangle with the previously kept point
+ * and the average of the next bucket.
+ */
+public class LttbDownsampler implements Downsampler {
+
+    @Override
+    public int[] select(double[] values, int target) {
+        int length = values.length;
+        if (target >= length || target < 3) {
+            return Downsampler.all(length);
+        }
+
+        int[] selected = new int[target];
+        int count = 0;
+        double every = (double) (length - 2) / (target - 2);
+        int a = 0;
+        selected[count++] = a;
+
+        for (int bucket = 0; bucket < target - 2; bucket++) {
+            int averageStart = (int) Math.floor((bucket + 1) * every) + 1;
+            int averageEnd = Math.min((int) Math.floor((bucket + 2) * every) + 1, length);
+            double averageX = 0;
+            double averageY = 0;
+            int averaged = 0;
+            for (int i = averageStart; i < averageEnd; i++) {
+                if (!Double.isNaN(values[i])) {
+                    averageX += i;
+                    averageY += values[i];
+                    averaged++;
+                }
+            }
+            if (averaged > 0) {
+                averageX /= averaged;
+                averageY /= averaged;
+            } else {
+                averageX = averageStart;
+                averageY = values[a];
+            }
+
+            int rangeStart = (int) Math.floor(bucket * every) + 1;
+            int rangeEnd = (int) Math.floor((bucket + 1) * every) + 1;
+            double ay = values[a];
+            double maxArea = -1;
+            int next = rangeStart;
+            for (int i = rangeStart; i < rangeEnd; i++) {
+                double area = Math.abs((a - averageX) * (values[i] - ay) - (a - i) * (averageY - ay));
+                if (area > maxArea) {
+                    maxArea = area;
+                    next = i;
+                }
+            }
+            selected[count++] = next;
+            a = next;
+        }
+
+        selected[count++] = length - 1;
+        return selected;
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.generatechartsllm.downsampling;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the minimum and maximum of each bucket, so spikes are never lost. Uses
+ * {@code target / 2} buckets, yielding about {@code target} points.
+ */
+public class MinMaxDownsampler implements Downsampler {
+
+    @Override
+    public int[] select(double[] values, int target) {
+        int length = values.length;
+        int buckets = target / 2;
+        if (target >= length || buckets < 1) {
+            return Downsampler.all(length);
+        }
+
+        int[] selected = new int[buckets * 2 + 2];
+        int count = 0;
+        selected[count++] = 0;
+        double every = (double) length / buckets;
+
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            int start = (int) (bucket * every);
+            int end = Math.min((int) ((bucket + 1) * every), length);
+            int min = -1;
+            int max = -1;
+            for (int i = start; i < end; i++) {
+                double value = values[i];
+                if (Double.isNaN(value)) {
+                    continue;
+                }
+                if (min < 0 || value < values[min]) {
+                    min = i;
+                }
+                if (max < 0 || value > values[max]) {
+                    max = i;
+                }
+            }
+            if (min < 0) {
+                continue;
+            }
+            int first = Math.min(min, max);
+            int second = Math.max(min, max);
+            if (first > selected[count - 1]) {
+                selected[count++] = first;
+            }
+            if (second > selected[count - 1]) {
+                selected[count++] = second;
+            }
+        }
+
+        if (selected[count - 1] != length - 1) {
+            selected[count++] = length - 1;
+        }
+        return Arrays.copyOf(selected, count);
+    }
+}
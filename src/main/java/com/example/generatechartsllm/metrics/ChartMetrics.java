@@ -0,0 +1,233 @@
+package com.example.generatechartsllm.metrics;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.util.AdaptiveLimiter;
+import com.example.generatechartsllm.util.CircuitBreaker;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Meters for the analyze-and-render pipeline. Every stage is recorded on one timer,
+ * {@code chart.stage.duration}, tagged with {@code stage}, {@code chart.type}, {@code model} and
+ * {@code outcome} so that a slow request can be attributed to a single stage. Tag values are
+ * normalized to keep cardinality bounded.
+ */
+@Component
+@RequiredArgsConstructor
+public class ChartMetrics {
+
+    public static final String STAGE_PROMPT = "prompt";
+    public static final String STAGE_LLM = "llm";
+    public static final String STAGE_PARSE = "parse";
+    public static final String STAGE_DATASET = "dataset";
+    public static final String STAGE_DRAW = "draw";
+    public static final String STAGE_ENCODE = "encode";
+
+    public static final String OUTCOME_SUCCESS = "success";
+    public static final String OUTCOME_ERROR = "error";
+
+    /** How an analysis was produced: by the LLM, the local fallback, confident heuristics, the cache or a shape template. */
+    public static final String OUTCOME_LLM = "llm";
+    public static final String OUTCOME_FALLBACK = "fallback";
+    public static final String OUTCOME_HEURISTIC = "heuristic";
+    public static final String OUTCOME_CACHE = "cache";
+    public static final String OUTCOME_TEMPLATE = "template";
+
+    private static final String NONE = "none";
+    private static final Set<String> CHART_TYPES = Set.of("BAR", "LINE", "PIE", "SCATTER");
+
+    private final MeterRegistry registry;
+
+    public Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    public void recordStage(Timer.Sample sample, String stage, String chartType, String model, String outcome) {
+        sample.stop(stageTimer(stage, chartType, model, outcome));
+    }
+
+    public void recordStage(String stage, String chartType, String model, String outcome, Duration duration) {
+        stageTimer(stage, chartType, model, outcome).record(duration);
+    }
+
+    /**
+     * End-to-end analysis time, tagged with how the analysis was produced.
+     */
+    public void recordAnalysis(Timer.Sample sample, String model, String outcome, ChartAnalysis analysis) {
+        sample.stop(Timer.builder("chart.analysis.duration")
+                .description("Time to produce a chart analysis")
+                .tags("chart.type", chartType(analysis != null ? analysis.getChartType() : null),
+                      "model", tag(model), "outcome", outcome)
+                .register(registry));
+    }
+
+    /**
+     * @param ingest {@code tree} for bodies bound to a JSON tree, {@code stream} for streamed ingestion
+     */
+    public void recordPayloadSize(String ingest, long bytes) {
+        if (bytes < 0) {
+            return;
+        }
+        DistributionSummary.builder("chart.payload.size")
+                .description("Request body size")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("ingest", ingest)
+                .register(registry)
+                .record(bytes);
+    }
+
+    /**
+     * @param mode {@code full} when the data is embedded, {@code compact} when it is summarized
+     */
+    public void recordPromptSize(String model, String mode, int chars) {
+        DistributionSummary.builder("chart.prompt.size")
+                .description("Prompt length sent to the LLM")
+                .baseUnit("chars")
+                .tags("model", tag(model), "mode", mode)
+                .register(registry)
+                .record(chars);
+    }
+
+    /**
+     * Token counts from the completion's {@code usage} block; negative counts are absent and skipped.
+     */
+    public void recordTokenUsage(String model, long promptTokens, long completionTokens) {
+        recordTokens(model, "prompt", promptTokens);
+        recordTokens(model, "completion", completionTokens);
+    }
+
+    public void recordImageSize(String chartType, int bytes) {
+        DistributionSummary.builder("chart.image.size")
+                .description("Encoded PNG size")
+                .baseUnit(BaseUnits.BYTES)
+                .tag("chart.type", chartType(chartType))
+                .register(registry)
+                .record(bytes);
+    }
+
+    public void recordHedge(String model) {
+        Counter.builder("chart.llm.hedges")
+                .description("Hedged second LLM requests sent after the primary exceeded the latency percentile")
+                .tag("model", tag(model))
+                .register(registry)
+                .increment();
+    }
+
+    /**
+     * Exposes the breaker state as {@code chart.circuit.state}: 0 closed, 1 half-open, 2 open.
+     */
+    public void bindCircuitBreaker(CircuitBreaker breaker) {
+        Gauge.builder("chart.circuit.state", breaker, b -> switch (b.state()) {
+                    case CLOSED -> 0;
+                    case HALF_OPEN -> 1;
+                    case OPEN -> 2;
+                })
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("name", breaker.getName())
+                .register(registry);
+    }
+
+    /**
+     * Exposes the limiter's current limit, in-flight and queued calls as {@code chart.llm.concurrency}
+     * (tagged by state), and queued calls it gave up on as {@code chart.llm.limiter.dropped} (tagged by reason).
+     */
+    public void bindLimiter(AdaptiveLimiter limiter) {
+        Gauge.builder("chart.llm.concurrency", limiter, AdaptiveLimiter::limit)
+                .description("Adaptive LLM concurrency by state")
+                .tags("name", limiter.getName(), "state", "limit")
+                .register(registry);
+        Gauge.builder("chart.llm.concurrency", limiter, AdaptiveLimiter::inFlight)
+                .description("Adaptive LLM concurrency by state")
+                .tags("name", limiter.getName(), "state", "in-flight")
+                .register(registry);
+        Gauge.builder("chart.llm.concurrency", limiter, AdaptiveLimiter::queued)
+                .description("Adaptive LLM concurrency by state")
+                .tags("name", limiter.getName(), "state", "queued")
+                .register(registry);
+        FunctionCounter.builder("chart.llm.limiter.dropped", limiter, AdaptiveLimiter::droppedCount)
+                .description("Queued LLM calls given up on")
+                .tags("name", limiter.getName(), "reason", "deadline")
+                .register(registry);
+        FunctionCounter.builder("chart.llm.limiter.dropped", limiter, AdaptiveLimiter::rejectedCount)
+                .description("Queued LLM calls given up on")
+                .tags("name", limiter.getName(), "reason", "queue-full")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the job scheduler's queue depth and running count as {@code chart.jobs}, tagged by state.
+     */
+    public void bindJobQueue(Supplier<Number> queued, Supplier<Number> running) {
+        Gauge.builder("chart.jobs", queued)
+                .description("Asynchronous chart jobs by scheduler state")
+                .tag("state", "queued")
+                .register(registry);
+        Gauge.builder("chart.jobs", running)
+                .description("Asynchronous chart jobs by scheduler state")
+                .tag("state", "running")
+                .register(registry);
+    }
+
+    /**
+     * Exposes the number of open chart sessions as {@code chart.sessions}.
+     */
+    public void bindSessions(Supplier<Number> open) {
+        Gauge.builder("chart.sessions", open)
+                .description("Open incremental chart sessions")
+                .register(registry);
+    }
+
+    /**
+     * Time from submitting an asynchronous job to its completion, queue wait included.
+     */
+    public void recordJob(String priority, String outcome, Duration duration) {
+        Timer.builder("chart.job.duration")
+                .description("Time from job submission to completion")
+                .tags("priority", priority, "outcome", outcome)
+                .register(registry)
+                .record(duration);
+    }
+
+    private Timer stageTimer(String stage, String chartType, String model, String outcome) {
+        return Timer.builder("chart.stage.duration")
+                .description("Time spent in one stage of the analyze-and-render pipeline")
+                .tags("stage", stage, "chart.type", chartType(chartType), "model", tag(model), "outcome", outcome)
+                .register(registry);
+    }
+
+    private void recordTokens(String model, String type, long tokens) {
+        if (tokens < 0) {
+            return;
+        }
+        DistributionSummary.builder("chart.llm.tokens")
+                .description("LLM tokens used per completion")
+                .baseUnit("tokens")
+                .tags("model", tag(model), "type", type)
+                .register(registry)
+                .record(tokens);
+    }
+
+    private static String chartType(String chartType) {
+        if (chartType == null) {
+            return NONE;
+        }
+        String normalized = chartType.toUpperCase(Locale.ROOT);
+        return CHART_TYPES.contains(normalized) ? normalized : "OTHER";
+    }
+
+    private static String tag(String value) {
+        return value == null || value.isBlank() ? NONE : value;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.generatechartsllm.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * One event of a streamed analysis: a {@code field} event for each analysis field as soon as the
+ * LLM has produced it (value as parsed JSON, written compactly), then a final {@code analysis} event with the result.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AnalysisEvent(String type, String field, JsonNode value, ChartAnalysis analysis) {
+
+    public static AnalysisEvent field(String name, JsonNode value) {
+        return new AnalysisEvent("field", name, value, null);
+    }
+
+    public static AnalysisEvent analysis(ChartAnalysis analysis) {
+        return new AnalysisEvent("analysis", null, null, analysis);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.generatechartsllm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CacheStats {
+    private long hits;
+    private long diskHits;
+    private long misses;
+    private long evictions;
+    private long size;
+}
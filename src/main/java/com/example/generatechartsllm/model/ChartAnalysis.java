@@ -1,11 +1,12 @@
 package com.example.generatechartsllm.model;
 
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -16,7 +17,19 @@ public class ChartAnalysis {
     private String xAxisLabel;
     private String yAxisLabel;
     private List<String> categories;
-    private Map<String, List<Double>> series;
+    @Schema(type = "object", example = "{\"Sales\": [100, 150, 200]}",
+            description = "Series name to values, index-aligned with categories")
+    private SeriesData series;
     private String reasoning;
+    private Double confidence; // 0..1 for locally inferred analyses, null when the LLM decided
+
+    /**
+     * A deep copy: changing the copy's fields, categories or series values leaves this analysis untouched.
+     */
+    public ChartAnalysis copy() {
+        return new ChartAnalysis(chartType, title, xAxisLabel, yAxisLabel,
+                categories != null ? new ArrayList<>(categories) : null,
+                series != null ? series.copy() : null, reasoning, confidence);
+    }
 }
 
@@ -0,0 +1,66 @@
+package com.example.generatechartsllm.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Status of an asynchronous chart job. Instances are immutable; each state change yields a new one.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChartJob(String id,
+                       Status status,
+                       Priority priority,
+                       String title,
+                       Instant createdAt,
+                       Instant startedAt,
+                       Instant finishedAt,
+                       int attempts,
+                       String chartType,
+                       String error) {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED;
+
+        public boolean isFinished() {
+            return this == SUCCEEDED || this == FAILED;
+        }
+    }
+
+    /** Scheduling priority; higher priorities are always started first, FIFO within a priority. */
+    public enum Priority {
+        HIGH, NORMAL, LOW;
+
+        /**
+         * Case-insensitive; null or blank means NORMAL.
+         */
+        public static Priority parse(String value) {
+            if (value == null || value.isBlank()) {
+                return NORMAL;
+            }
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        }
+    }
+
+    public static ChartJob queued(String id, Priority priority, String title, Instant now) {
+        return new ChartJob(id, Status.QUEUED, priority, title, now, null, null, 0, null, null);
+    }
+
+    public ChartJob started(Instant now) {
+        return new ChartJob(id, Status.RUNNING, priority, title, createdAt, now, null, attempts + 1, null, null);
+    }
+
+    /** Back in the queue after a restart interrupted it; the interrupted attempt still counts. */
+    public ChartJob requeued() {
+        return new ChartJob(id, Status.QUEUED, priority, title, createdAt, null, null, attempts, null, null);
+    }
+
+    public ChartJob succeeded(Instant now, String chartType) {
+        return new ChartJob(id, Status.SUCCEEDED, priority, title, createdAt, startedAt, now, attempts, chartType, null);
+    }
+
+    public ChartJob failed(Instant now, String error) {
+        return new ChartJob(id, Status.FAILED, priority, title, createdAt, startedAt, now, attempts, null, error);
+    }
+}
@@ -12,5 +12,8 @@ public class ChartRequest {
     private JsonNode data;
     private String title;
     private String description;
+    private String downsampling; // AUTO (default), LTTB, MINMAX or NONE for large LINE/SCATTER series
+    private Integer compressionLevel; // PNG compression 0-9; defaults to chart.render.compression-level
+    private Boolean includeReasoning; // /analyze and jobs, default true; false lets a streamed LLM response stop early
 }
 
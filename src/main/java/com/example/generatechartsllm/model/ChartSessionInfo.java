@@ -0,0 +1,20 @@
+package com.example.generatechartsllm.model;
+
+import java.util.List;
+
+/**
+ * State of a chart session: the chart decided when it was created and the size of its current window.
+ *
+ * @param series  series names that updates must use
+ * @param points  points currently in the window
+ * @param window  maximum points kept; older points slide out as new ones arrive
+ * @param version incremented by every update; the chart's ETag changes with it
+ */
+public record ChartSessionInfo(String id,
+                               String chartType,
+                               String title,
+                               List<String> series,
+                               int points,
+                               int window,
+                               long version) {
+}
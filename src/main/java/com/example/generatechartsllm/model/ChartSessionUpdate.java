@@ -0,0 +1,23 @@
+package com.example.generatechartsllm.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * New points for a chart session, in the same layout as {@link ChartAnalysis}. A point whose category
+ * equals the newest category in the window updates that point instead of appending a new one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ChartSessionUpdate {
+    private List<String> categories;
+    @Schema(type = "object", example = "{\"Sales\": [210]}",
+            description = "Series name to values, index-aligned with categories; a series left out is a gap in new points "
+                        + "and keeps its value in updated ones")
+    private SeriesData series;
+}
@@ -0,0 +1,19 @@
+package com.example.generatechartsllm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Which data fields feed a chart: the field supplying category labels (null for row order)
+ * and the numeric fields supplying one series each.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FieldMapping {
+    private String categoryField;
+    private List<String> seriesFields;
+}
@@ -0,0 +1,24 @@
+package com.example.generatechartsllm.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * An LLM decision reduced to what does not depend on the values: chart type, labels, and which
+ * fields feed the categories and each series. Re-applied to any payload with the same shape.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MappingTemplate {
+    private String chartType;
+    private String title;
+    private String xAxisLabel;
+    private String yAxisLabel;
+    private String reasoning;
+    private FieldMapping mapping;
+    private List<String> seriesNames; // display name per entry of mapping.seriesFields
+}
@@ -0,0 +1,16 @@
+package com.example.generatechartsllm.model;
+
+import com.example.generatechartsllm.downsampling.DownsamplingMode;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RenderOptions {
+    private int width;
+    private int height;
+    private DownsamplingMode downsampling;
+    private int compressionLevel; // PNG deflate level, 0 (fastest) to 9 (smallest)
+}
@@ -0,0 +1,154 @@
+package com.example.generatechartsllm.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Named numeric series stored as one primitive {@code double[]} per series, in insertion order.
+ * Index {@code i} of every series lines up with category {@code i} of the owning {@link ChartAnalysis}.
+ * <p>
+ * Serialized as a JSON object of arrays, e.g. {@code {"Sales": [100, 150], "Costs": [80, 90]}}.
+ */
+@JsonSerialize(using = SeriesData.Serializer.class)
+@JsonDeserialize(using = SeriesData.Deserializer.class)
+public class SeriesData {
+
+    private final List<String> names = new ArrayList<>();
+    private final List<double[]> values = new ArrayList<>();
+    private final Map<String, Integer> indexByName = new HashMap<>();
+
+    /**
+     * Adds a series, replacing the values of an existing series with the same name in place.
+     */
+    public SeriesData put(String name, double[] seriesValues) {
+        Integer index = indexByName.get(name);
+        if (index != null) {
+            values.set(index, seriesValues);
+        } else {
+            indexByName.put(name, names.size());
+            names.add(name);
+            values.add(seriesValues);
+        }
+        return this;
+    }
+
+    public double[] get(String name) {
+        Integer index = indexByName.get(name);
+        return index != null ? values.get(index) : null;
+    }
+
+    public String name(int index) {
+        return names.get(index);
+    }
+
+    public double[] values(int index) {
+        return values.get(index);
+    }
+
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+
+    public int size() {
+        return names.size();
+    }
+
+    public boolean isEmpty() {
+        return names.isEmpty();
+    }
+
+    /**
+     * A copy with its own value arrays.
+     */
+    public SeriesData copy() {
+        SeriesData copy = new SeriesData();
+        for (int i = 0; i < names.size(); i++) {
+            copy.put(names.get(i), values.get(i).clone());
+        }
+        return copy;
+    }
+
+    public void forEach(BiConsumer<String, double[]> action) {
+        for (int i = 0; i < names.size(); i++) {
+            action.accept(names.get(i), values.get(i));
+        }
+    }
+
+    /**
+     * Reads a series object from the parser, which must be positioned on its START_OBJECT.
+     * Values are appended straight into primitive arrays; numeric strings are parsed and any
+     * other non-numeric value becomes 0.
+     */
+    public static SeriesData read(JsonParser parser) throws IOException {
+        SeriesData series = new SeriesData();
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return series;
+        }
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            double[] buffer = new double[16];
+            int length = 0;
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (length == buffer.length) {
+                    buffer = Arrays.copyOf(buffer, length * 2);
+                }
+                buffer[length++] = toDouble(parser, token);
+            }
+            series.put(name, Arrays.copyOf(buffer, length));
+        }
+        return series;
+    }
+
+    private static double toDouble(JsonParser parser, JsonToken token) throws IOException {
+        if (token == JsonToken.VALUE_NUMBER_INT || token == JsonToken.VALUE_NUMBER_FLOAT) {
+            return parser.getDoubleValue();
+        }
+        if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return 0.0;
+        }
+        return parser.getValueAsDouble(0.0);
+    }
+
+    public static class Serializer extends JsonSerializer<SeriesData> {
+        @Override
+        public void serialize(SeriesData series, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < series.size(); i++) {
+                double[] seriesValues = series.values(i);
+                generator.writeFieldName(series.name(i));
+                generator.writeArray(seriesValues, 0, seriesValues.length);
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<SeriesData> {
+        @Override
+        public SeriesData deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            return read(parser);
+        }
+    }
+}
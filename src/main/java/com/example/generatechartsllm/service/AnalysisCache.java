@@ -0,0 +1,288 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.Column;
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.model.CacheStats;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.util.CanonicalJson;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier cache of LLM chart analyses keyed by a content hash of the request.
+ * The memory tier is a bounded LRU with a TTL; the optional disk tier keeps one
+ * JSON file per key so results survive restarts. Disk entries expire {@code ttl} after they were
+ * written; a periodic sweep deletes expired files, then the oldest beyond {@code disk.max-entries}.
+ * Analyses are copied on the way in and out, so callers may change what they put or get.
+ */
+@Service
+@Slf4j
+public class AnalysisCache {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Path diskDirectory;
+    private final int maxDiskEntries;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Clock clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    @Value("${chart.cache.analysis.disk.sweep-interval:PT10M}")
+    private Duration sweepInterval = Duration.ofMinutes(10);
+
+    private Disposable sweeper;
+
+    @Autowired
+    public AnalysisCache(@Value("${chart.cache.analysis.max-entries:1000}") int maxEntries,
+                         @Value("${chart.cache.analysis.ttl:PT1H}") Duration ttl,
+                         @Value("${chart.cache.analysis.disk.enabled:false}") boolean diskEnabled,
+                         @Value("${chart.cache.analysis.disk.directory:${java.io.tmpdir}/generate-charts-llm/analysis}") String diskDirectory,
+                         @Value("${chart.cache.analysis.disk.max-entries:10000}") int maxDiskEntries) {
+        this(maxEntries, ttl, diskEnabled ? Path.of(diskDirectory) : null, maxDiskEntries, Clock.systemUTC());
+    }
+
+    AnalysisCache(int maxEntries, Duration ttl, Path diskDirectory, int maxDiskEntries, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.diskDirectory = diskDirectory;
+        this.maxDiskEntries = maxDiskEntries;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > AnalysisCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (diskDirectory != null) {
+            try {
+                Files.createDirectories(diskDirectory);
+                log.info("Analysis disk cache enabled at {}", diskDirectory);
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot create analysis cache directory " + diskDirectory, e);
+            }
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (diskDirectory != null) {
+            sweeper = Flux.interval(Duration.ZERO, sweepInterval, Schedulers.boundedElastic())
+                    .subscribe(tick -> evictExpiredFromDisk());
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Computes the cache key: SHA-256 over the canonical JSON of the data plus title, description and model.
+     */
+    public String keyFor(JsonNode data, String title, String description, String model) {
+        MessageDigest digest = CanonicalJson.newDigest();
+        CanonicalJson.update(digest, data);
+        CanonicalJson.update(digest, title);
+        CanonicalJson.update(digest, description);
+        CanonicalJson.update(digest, model);
+        return CanonicalJson.hex(digest);
+    }
+
+    /**
+     * Cache key for data ingested straight into a table: hashes the layout, column names and cells
+     * in order, plus title, description and model.
+     */
+    public String keyFor(DataTable table, String title, String description, String model) {
+        MessageDigest digest = CanonicalJson.newDigest();
+        CanonicalJson.update(digest, table.getLayout().name());
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+        for (Column column : table.getColumns()) {
+            CanonicalJson.update(digest, column.getName());
+            for (int row = 0; row < column.size(); row++) {
+                double number = column.number(row);
+                if (Double.isNaN(number)) {
+                    CanonicalJson.update(digest, column.label(row));
+                } else {
+                    digest.update((byte) 2);
+                    digest.update(buffer.clear().putDouble(number).array());
+                }
+            }
+        }
+        CanonicalJson.update(digest, title);
+        CanonicalJson.update(digest, description);
+        CanonicalJson.update(digest, model);
+        return CanonicalJson.hex(digest);
+    }
+
+    public ChartAnalysis get(String key) {
+        long now = clock.millis();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > now) {
+                    hits.incrementAndGet();
+                    return entry.analysis.copy();
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        Entry fromDisk = readFromDisk(key, now);
+        if (fromDisk != null) {
+            diskHits.incrementAndGet();
+            synchronized (entries) {
+                entries.put(key, fromDisk);
+            }
+            return fromDisk.analysis.copy();
+        }
+
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, ChartAnalysis analysis) {
+        synchronized (entries) {
+            entries.put(key, new Entry(analysis.copy(), clock.millis() + ttl.toMillis()));
+        }
+        writeToDisk(key, analysis);
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), diskHits.get(), misses.get(), evictions.get(), size);
+    }
+
+    /**
+     * Deletes disk entries past their TTL, then the oldest entries beyond {@code maxDiskEntries}.
+     *
+     * @return the number of files deleted
+     */
+    public int evictExpiredFromDisk() {
+        if (diskDirectory == null) {
+            return 0;
+        }
+        long now = clock.millis();
+        List<Path> evicted = new ArrayList<>();
+        List<DiskFile> kept = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(diskDirectory, Files::isRegularFile)) {
+            for (Path file : files) {
+                long modified = Files.getLastModifiedTime(file).toMillis();
+                // Temporary files left by an interrupted write expire the same way but do not count as entries
+                if (modified + ttl.toMillis() <= now) {
+                    evicted.add(file);
+                } else if (file.toString().endsWith(".json")) {
+                    kept.add(new DiskFile(file, modified));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Failed to sweep analysis cache directory {}: {}", diskDirectory, e.getMessage());
+            return 0;
+        }
+        if (kept.size() > maxDiskEntries) {
+            kept.sort(Comparator.comparingLong(DiskFile::modified));
+            kept.subList(0, kept.size() - maxDiskEntries).forEach(file -> evicted.add(file.path()));
+        }
+        int deleted = 0;
+        for (Path file : evicted) {
+            try {
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            } catch (IOException e) {
+                log.warn("Failed to delete cached analysis {}: {}", file, e.getMessage());
+            }
+        }
+        evictions.addAndGet(deleted);
+        if (deleted > 0) {
+            log.debug("Evicted {} cached analyses from disk", deleted);
+        }
+        return deleted;
+    }
+
+    /**
+     * @return the analysis with the expiry of the file it was read from, or null
+     */
+    private Entry readFromDisk(String key, long now) {
+        if (diskDirectory == null) {
+            return null;
+        }
+        Path file = diskDirectory.resolve(key + ".json");
+        try {
+            if (!Files.isRegularFile(file)) {
+                return null;
+            }
+            long expiresAt = Files.getLastModifiedTime(file).toMillis() + ttl.toMillis();
+            if (expiresAt <= now) {
+                Files.deleteIfExists(file);
+                evictions.incrementAndGet();
+                return null;
+            }
+            return new Entry(objectMapper.readValue(file.toFile(), ChartAnalysis.class), expiresAt);
+        } catch (IOException e) {
+            log.warn("Failed to read cached analysis {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, ChartAnalysis analysis) {
+        if (diskDirectory == null) {
+            return;
+        }
+        Path file = diskDirectory.resolve(key + ".json");
+        try {
+            Path tmp = Files.createTempFile(diskDirectory, key, ".tmp");
+            objectMapper.writeValue(tmp.toFile(), analysis);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to write cached analysis {}: {}", file, e.getMessage());
+        }
+    }
+
+    private record Entry(ChartAnalysis analysis, long expiresAt) {
+    }
+
+    private record DiskFile(Path path, long modified) {
+    }
+}
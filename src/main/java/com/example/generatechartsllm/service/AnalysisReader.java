@@ -0,0 +1,97 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.FieldMapping;
+import com.example.generatechartsllm.model.SeriesData;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects the fields of an LLM analysis object one at a time, straight from a parser positioned
+ * on each value. Used for whole responses and for fields completed while a response streams in.
+ */
+final class AnalysisReader {
+
+    private enum Field { CHART_TYPE, TITLE, X_AXIS_LABEL, Y_AXIS_LABEL, CATEGORIES, SERIES, CATEGORY_FIELD, SERIES_FIELDS }
+
+    private final ChartAnalysis analysis = new ChartAnalysis();
+    private final Set<Field> seen = EnumSet.noneOf(Field.class);
+    private String categoryField;
+    private List<String> seriesFields;
+
+    AnalysisReader() {
+        analysis.setChartType("BAR");
+        analysis.setTitle("Chart");
+        analysis.setXAxisLabel("X Axis");
+        analysis.setYAxisLabel("Y Axis");
+        analysis.setReasoning("");
+        analysis.setCategories(new ArrayList<>());
+        analysis.setSeries(new SeriesData());
+    }
+
+    /**
+     * Reads the value the parser is positioned on into the named field; unknown fields are skipped.
+     */
+    void read(String field, JsonParser parser) throws IOException {
+        switch (field) {
+            case "chartType" -> { analysis.setChartType(readText(parser, "BAR")); seen.add(Field.CHART_TYPE); }
+            case "title" -> { analysis.setTitle(readText(parser, "Chart")); seen.add(Field.TITLE); }
+            case "xAxisLabel" -> { analysis.setXAxisLabel(readText(parser, "X Axis")); seen.add(Field.X_AXIS_LABEL); }
+            case "yAxisLabel" -> { analysis.setYAxisLabel(readText(parser, "Y Axis")); seen.add(Field.Y_AXIS_LABEL); }
+            case "reasoning" -> analysis.setReasoning(readText(parser, ""));
+            case "categories" -> { analysis.setCategories(readTexts(parser)); seen.add(Field.CATEGORIES); }
+            case "series" -> { analysis.setSeries(SeriesData.read(parser)); seen.add(Field.SERIES); }
+            case "categoryField" -> { categoryField = readText(parser, null); seen.add(Field.CATEGORY_FIELD); }
+            case "seriesFields" -> { seriesFields = readTexts(parser); seen.add(Field.SERIES_FIELDS); }
+            default -> parser.skipChildren();
+        }
+    }
+
+    /**
+     * True once everything needed to render has been read: type, labels, and either the data
+     * itself or a complete field mapping.
+     */
+    boolean isRenderable() {
+        return seen.containsAll(EnumSet.of(Field.CHART_TYPE, Field.TITLE, Field.X_AXIS_LABEL, Field.Y_AXIS_LABEL))
+                && (seen.containsAll(EnumSet.of(Field.CATEGORIES, Field.SERIES))
+                    || seen.containsAll(EnumSet.of(Field.CATEGORY_FIELD, Field.SERIES_FIELDS)));
+    }
+
+    ChartAnalysis analysis() {
+        return analysis;
+    }
+
+    FieldMapping mapping() {
+        return new FieldMapping(categoryField, seriesFields);
+    }
+
+    private static String readText(JsonParser parser, String defaultValue) throws IOException {
+        if (parser.currentToken().isStructStart()) {
+            parser.skipChildren();
+            return defaultValue;
+        }
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return defaultValue;
+        }
+        return parser.getValueAsString(defaultValue);
+    }
+
+    private static List<String> readTexts(JsonParser parser) throws IOException {
+        List<String> texts = new ArrayList<>();
+        if (parser.currentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return texts;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            String text = readText(parser, null);
+            texts.add(text != null ? text : "");
+        }
+        return texts;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.util.CallPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs the analyze-and-render pipeline for many requests at once. Items are emitted in
+ * completion order and a failing item never fails the batch.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class BatchChartService {
+
+    private final ChatClientService chatClientService;
+    private final ChartService chartService;
+
+    @Value("${chart.batch.concurrency:8}")
+    private int concurrency;
+
+    @Value("${chart.batch.render-retries:5}")
+    private int renderRetries;
+
+    @Value("${chart.llm.deadline:PT90S}")
+    private Duration llmDeadline;
+
+    public Flux<BatchItem> generate(List<ChartRequest> requests) {
+        log.info("Generating batch of {} charts with concurrency {}", requests.size(), concurrency);
+
+        return Flux.range(0, requests.size())
+                .flatMap(index -> generateItem(index, requests.get(index)), concurrency)
+                .contextWrite(CallPriority.BACKGROUND.context());
+    }
+
+    /**
+     * Longest a batch of this size can take: every round of {@code concurrency} items runs up to the LLM deadline.
+     */
+    public Duration worstCaseDuration(int items) {
+        return llmDeadline.multipliedBy((items + concurrency - 1) / concurrency);
+    }
+
+    private Mono<BatchItem> generateItem(int index, ChartRequest request) {
+        return Mono.defer(() -> chatClientService.analyzeDataForChartAsync(
+                        request.getData(),
+                        request.getTitle(),
+                        request.getDescription(),
+                        false))
+                .flatMap(analysis -> {
+                    RenderOptions options = chartService.renderOptions(request);
+                    // A full render queue is transient; back off instead of failing the item
+                    return chartService.generateChartAsync(analysis, options, chartService.renderKey(analysis, options))
+                            .retryWhen(Retry.backoff(renderRetries, Duration.ofMillis(100))
+                                    .filter(RejectedExecutionException.class::isInstance))
+                            .map(image -> new BatchItem(index, analysis, image, null));
+                })
+                .onErrorResume(e -> {
+                    log.warn("Batch item {} failed: {}", index, e.getMessage());
+                    return Mono.just(new BatchItem(index, null, null,
+                            e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                });
+    }
+
+    public record BatchItem(int index, ChartAnalysis analysis, byte[] image, String error) {
+
+        public boolean isSuccess() {
+            return error == null;
+        }
+    }
+}
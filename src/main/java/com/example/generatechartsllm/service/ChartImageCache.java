@@ -0,0 +1,62 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LRU cache of encoded chart images bounded by total byte size rather than entry count.
+ */
+@Service
+public class ChartImageCache {
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, byte[]> images = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ChartImageCache(@Value("${chart.cache.image.max-bytes:67108864}") long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public synchronized byte[] get(String key) {
+        byte[] image = images.get(key);
+        if (image != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return image;
+    }
+
+    public synchronized void put(String key, byte[] image) {
+        if (image.length > maxBytes) {
+            return;
+        }
+        byte[] previous = images.put(key, image);
+        if (previous != null) {
+            currentBytes -= previous.length;
+        }
+        currentBytes += image.length;
+
+        Iterator<Map.Entry<String, byte[]>> it = images.entrySet().iterator();
+        while (currentBytes > maxBytes && it.hasNext()) {
+            Map.Entry<String, byte[]> eldest = it.next();
+            currentBytes -= eldest.getValue().length;
+            it.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    public synchronized CacheStats stats() {
+        return new CacheStats(hits.get(), 0, misses.get(), evictions.get(), images.size());
+    }
+}
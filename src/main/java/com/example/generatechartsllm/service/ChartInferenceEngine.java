@@ -0,0 +1,366 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.Column;
+import com.example.generatechartsllm.data.ColumnType;
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.data.DataTables;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.FieldMapping;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.example.generatechartsllm.model.SeriesData;
+import com.fasterxml.jackson.databind.JsonNode;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Local, rule-based chart inference. Classifies columns as temporal, categorical or numeric,
+ * picks a dimension and its measures, and recognizes time-series, part-of-whole and
+ * multi-series shapes. Identifier columns (ids, codes, row numbers) are never measures.
+ * Every result carries a confidence score in [0, 1].
+ */
+@Service
+@Slf4j
+public class ChartInferenceEngine {
+
+    private static final Pattern SHARE_HINT = Pattern.compile(
+            "(?i).*\\b(share|distribution|breakdown|proportion|percent(age)?|composition|allocation|split)\\b.*");
+    private static final int MAX_PIE_SLICES = 8;
+    private static final Pattern IDENTIFIER_NAME = Pattern.compile(
+            "(?i:id|key|code|index|idx|row|seq|no)|.*[_\\- ](?i:id|key|code|seq|no)|.*[a-z0-9](?:Id|ID|Key|Code|Seq|No)");
+
+    public ChartAnalysis infer(JsonNode data, String userTitle, String userDescription) {
+        return infer(DataTables.fromJson(data), userTitle, userDescription);
+    }
+
+    public ChartAnalysis infer(DataTable table, String userTitle, String userDescription) {
+        if (table == null || table.getRowCount() == 0) {
+            return unknown(userTitle, "Data is not tabular");
+        }
+
+        Column dimension = pickDimension(table);
+        List<Column> measures = new ArrayList<>();
+        int identifiers = 0;
+        for (Column column : table.columnsOfType(ColumnType.NUMERIC)) {
+            if (column == dimension) {
+                continue;
+            }
+            if (isIdentifier(column)) {
+                identifiers++;
+            } else {
+                measures.add(column);
+            }
+        }
+        if (measures.isEmpty()) {
+            return unknown(userTitle, identifiers > 0 ? "Only identifier fields are numeric" : "No numeric fields found");
+        }
+
+        int rows = table.getRowCount();
+        List<String> measureNames = new ArrayList<>();
+        int missing = 0;
+        for (Column measure : measures) {
+            measureNames.add(measure.getName());
+            missing += measure.getMissingCount();
+        }
+        double completeness = 1.0 - (double) missing / ((long) rows * measures.size());
+
+        ChartAnalysis analysis = new ChartAnalysis();
+        applyMapping(analysis, table, new FieldMapping(dimension != null ? dimension.getName() : null, measureNames));
+        List<String> categories = analysis.getCategories();
+
+        String hints = (userTitle != null ? userTitle : "") + " " + (userDescription != null ? userDescription : "");
+        String chartType;
+        double confidence;
+        String reasoning;
+
+        if (dimension != null && dimension.getType() == ColumnType.TEMPORAL && rows >= 3) {
+            chartType = "LINE";
+            confidence = measures.size() == 1 ? 0.92 : 0.88;
+            reasoning = "Values are ordered over time (" + dimension.getName() + "), so a line chart shows the trend";
+        } else if (dimension != null && measures.size() == 1
+                && isPartOfWhole(measures.get(0), hints) && rows >= 2 && rows <= MAX_PIE_SLICES) {
+            chartType = "PIE";
+            confidence = sumsToWhole(measures.get(0)) ? 0.93 : 0.87;
+            reasoning = "Non-negative values forming parts of a whole across " + rows + " categories suit a pie chart";
+        } else if (dimension != null) {
+            chartType = "BAR";
+            confidence = measures.size() == 1 ? 0.88 : 0.86;
+            reasoning = measures.size() == 1
+                    ? "Comparing a single measure across categories is best shown as a bar chart"
+                    : "Comparing " + measures.size() + " measures across categories is best shown as a grouped bar chart";
+        } else if (measures.size() >= 2) {
+            chartType = "SCATTER";
+            confidence = 0.5;
+            reasoning = "Several numeric fields without a label field; a scatter plot shows their spread";
+        } else {
+            chartType = rows >= 3 ? "LINE" : "BAR";
+            confidence = 0.6;
+            reasoning = "A single unlabeled numeric sequence";
+        }
+        if (dimension != null && dimension.getType() == ColumnType.CATEGORICAL && distinctLabels(categories) < rows) {
+            // Repeated labels usually mean the data needs aggregation the heuristics do not attempt
+            confidence -= 0.3;
+        }
+        confidence *= completeness;
+
+        analysis.setChartType(chartType);
+        analysis.setTitle(userTitle != null && !userTitle.isEmpty() ? userTitle : defaultTitle(dimension, measures));
+        analysis.setXAxisLabel(dimension != null ? humanize(dimension.getName()) : "Index");
+        analysis.setYAxisLabel(measures.size() == 1 ? humanize(measures.get(0).getName()) : "Value");
+        analysis.setReasoning("Heuristic inference: " + reasoning);
+        analysis.setConfidence(Math.max(0.0, Math.min(1.0, confidence)));
+
+        log.debug("Heuristic inference picked {} with confidence {}", chartType, analysis.getConfidence());
+        return analysis;
+    }
+
+    /**
+     * Fills categories and series from the full table according to the mapping. Unknown or
+     * non-numeric series fields are skipped; a missing category field falls back to row labels.
+     *
+     * @return false when no usable series field remains, leaving the analysis untouched
+     */
+    public boolean applyMapping(ChartAnalysis analysis, DataTable table, FieldMapping mapping) {
+        if (table == null || mapping == null || mapping.getSeriesFields() == null) {
+            return false;
+        }
+        List<Column> seriesColumns = new ArrayList<>();
+        for (String field : mapping.getSeriesFields()) {
+            Column column = table.getColumn(field);
+            if (column != null && column.getNumericCount() > 0) {
+                seriesColumns.add(column);
+            }
+        }
+        if (seriesColumns.isEmpty()) {
+            return false;
+        }
+
+        int rows = table.getRowCount();
+        Column categoryColumn = mapping.getCategoryField() != null ? table.getColumn(mapping.getCategoryField()) : null;
+        List<String> categories = new ArrayList<>(rows);
+        for (int row = 0; row < rows; row++) {
+            String label = categoryColumn != null ? categoryColumn.label(row) : null;
+            categories.add(label != null ? label : "Item " + (row + 1));
+        }
+
+        SeriesData series = new SeriesData();
+        for (Column column : seriesColumns) {
+            double[] values = column.numbers();
+            for (int row = 0; row < values.length; row++) {
+                if (Double.isNaN(values[row])) {
+                    values[row] = 0.0;
+                }
+            }
+            series.put(column.getName(), values);
+        }
+
+        analysis.setCategories(categories);
+        analysis.setSeries(series);
+        return true;
+    }
+
+    /**
+     * Recovers the field mapping behind an analysis: the column whose labels are exactly its
+     * categories (none when they are row numbers) and, per series, a column holding exactly its
+     * values. Returns null when the analysis is not a plain selection of columns, e.g. when the
+     * LLM aggregated, sorted or computed values, or when the data cannot tell which column was
+     * meant: several columns hold the categories, or several hold a series' values and none is
+     * named like the series.
+     */
+    public MappingTemplate deriveTemplate(ChartAnalysis analysis, DataTable table) {
+        if (table == null || analysis.getSeries() == null || analysis.getSeries().isEmpty()
+                || analysis.getCategories() == null || analysis.getCategories().size() != table.getRowCount()) {
+            return null;
+        }
+        List<String> categories = analysis.getCategories();
+        String categoryField = null;
+        if (!isRowOrder(categories)) {
+            List<Column> candidates = table.getColumns().stream()
+                    .filter(column -> labelsMatch(column, categories))
+                    .toList();
+            if (candidates.size() != 1) {
+                return null;
+            }
+            categoryField = candidates.get(0).getName();
+        }
+
+        List<String> seriesFields = new ArrayList<>();
+        List<String> seriesNames = new ArrayList<>();
+        SeriesData series = analysis.getSeries();
+        for (int i = 0; i < series.size(); i++) {
+            double[] values = series.values(i);
+            String name = series.name(i);
+            List<Column> candidates = table.getColumns().stream()
+                    .filter(column -> column.getNumericCount() > 0 && valuesMatch(column, values))
+                    .toList();
+            if (candidates.size() > 1) {
+                candidates = candidates.stream().filter(column -> column.getName().equalsIgnoreCase(name)).toList();
+            }
+            if (candidates.size() != 1) {
+                return null;
+            }
+            Column source = candidates.get(0);
+            seriesFields.add(source.getName());
+            seriesNames.add(name);
+        }
+        return new MappingTemplate(analysis.getChartType(), analysis.getTitle(), analysis.getXAxisLabel(),
+                analysis.getYAxisLabel(), analysis.getReasoning(), new FieldMapping(categoryField, seriesFields), seriesNames);
+    }
+
+    /**
+     * Builds an analysis from a template and the full table, or returns null when a field the
+     * template relies on is missing or no longer numeric, or when series names repeat.
+     */
+    public ChartAnalysis applyTemplate(MappingTemplate template, DataTable table) {
+        FieldMapping mapping = template.getMapping();
+        if (table == null || table.getRowCount() == 0
+                || (mapping.getCategoryField() != null && table.getColumn(mapping.getCategoryField()) == null)) {
+            return null;
+        }
+        ChartAnalysis analysis = new ChartAnalysis();
+        if (!applyMapping(analysis, table, mapping) || analysis.getSeries().size() != mapping.getSeriesFields().size()) {
+            return null;
+        }
+        if (template.getSeriesNames() == null || template.getSeriesNames().size() != mapping.getSeriesFields().size()) {
+            return null;
+        }
+        SeriesData named = new SeriesData();
+        for (int i = 0; i < mapping.getSeriesFields().size(); i++) {
+            named.put(template.getSeriesNames().get(i), analysis.getSeries().get(mapping.getSeriesFields().get(i)));
+        }
+        if (named.size() != mapping.getSeriesFields().size()) {
+            // Repeated names would silently merge series
+            return null;
+        }
+        analysis.setSeries(named);
+        analysis.setChartType(template.getChartType());
+        analysis.setTitle(template.getTitle());
+        analysis.setXAxisLabel(template.getXAxisLabel());
+        analysis.setYAxisLabel(template.getYAxisLabel());
+        analysis.setReasoning(template.getReasoning());
+        return analysis;
+    }
+
+    private static boolean isRowOrder(List<String> categories) {
+        for (int row = 0; row < categories.size(); row++) {
+            if (!("Item " + (row + 1)).equals(categories.get(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean labelsMatch(Column column, List<String> categories) {
+        for (int row = 0; row < categories.size(); row++) {
+            String label = column.label(row);
+            if (label == null || !label.equals(categories.get(row))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Missing cells count as 0, as {@link #applyMapping} plots them.
+     */
+    private static boolean valuesMatch(Column column, double[] values) {
+        if (values.length != column.size()) {
+            return false;
+        }
+        for (int row = 0; row < values.length; row++) {
+            double cell = column.number(row);
+            double expected = Double.isNaN(cell) ? 0.0 : cell;
+            if (Math.abs(expected - values[row]) > 1e-9 * Math.max(1.0, Math.abs(expected))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Prefers a temporal column, then a categorical one; numeric columns only qualify when nothing else does.
+     */
+    private Column pickDimension(DataTable table) {
+        List<Column> temporal = table.columnsOfType(ColumnType.TEMPORAL);
+        if (!temporal.isEmpty()) {
+            return temporal.get(0);
+        }
+        List<Column> categorical = table.columnsOfType(ColumnType.CATEGORICAL);
+        if (!categorical.isEmpty()) {
+            return categorical.get(0);
+        }
+        return null;
+    }
+
+    /**
+     * Ids, codes and row numbers: named like one, or consecutive integers counting up one per row.
+     */
+    private boolean isIdentifier(Column column) {
+        if (IDENTIFIER_NAME.matcher(column.getName()).matches()) {
+            return true;
+        }
+        if (column.size() < 3) {
+            return false;
+        }
+        for (int row = 0; row < column.size(); row++) {
+            double value = column.number(row);
+            if (Double.isNaN(value) || value != Math.rint(value) || (row > 0 && value != column.number(row - 1) + 1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isPartOfWhole(Column measure, String hints) {
+        for (int row = 0; row < measure.size(); row++) {
+            double value = measure.number(row);
+            if (Double.isNaN(value) || value < 0) {
+                return false;
+            }
+        }
+        return sumsToWhole(measure) || SHARE_HINT.matcher(hints).matches()
+                || SHARE_HINT.matcher(measure.getName()).matches();
+    }
+
+    private boolean sumsToWhole(Column measure) {
+        double sum = 0;
+        for (int row = 0; row < measure.size(); row++) {
+            sum += measure.number(row);
+        }
+        return Math.abs(sum - 100.0) <= 1.0 || Math.abs(sum - 1.0) <= 0.01;
+    }
+
+    private int distinctLabels(List<String> labels) {
+        return (int) labels.stream().distinct().count();
+    }
+
+    private String defaultTitle(Column dimension, List<Column> measures) {
+        String measure = measures.size() == 1 ? humanize(measures.get(0).getName()) : "Values";
+        return dimension != null ? measure + " by " + humanize(dimension.getName()) : measure;
+    }
+
+    private String humanize(String name) {
+        if (name == null || name.isEmpty()) {
+            return name;
+        }
+        String spaced = name.replaceAll("([a-z])([A-Z])", "$1 $2").replace('_', ' ');
+        return spaced.substring(0, 1).toUpperCase(Locale.ROOT) + spaced.substring(1);
+    }
+
+    private ChartAnalysis unknown(String userTitle, String reason) {
+        ChartAnalysis analysis = new ChartAnalysis();
+        analysis.setChartType("BAR");
+        analysis.setTitle(userTitle != null ? userTitle : "Data Visualization");
+        analysis.setXAxisLabel("Categories");
+        analysis.setYAxisLabel("Values");
+        analysis.setCategories(new ArrayList<>());
+        analysis.setSeries(new SeriesData());
+        analysis.setReasoning("Heuristic inference: " + reason);
+        analysis.setConfidence(0.0);
+        return analysis;
+    }
+}
@@ -0,0 +1,225 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartJob;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.util.CallPriority;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs chart requests as asynchronous jobs. Submitting only persists the request; a bounded
+ * priority queue feeds at most {@code chart.jobs.concurrency} analyze-and-render pipelines, so
+ * ingest is decoupled from LLM latency. The queue holds job ids only; requests are read back from
+ * the {@link ChartJobStore} when a job starts. Unfinished jobs are resumed after a restart, and a
+ * job interrupted {@code chart.jobs.max-attempts} times is failed instead of retried again.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChartJobService {
+
+    private static final Comparator<QueuedJob> QUEUE_ORDER =
+            Comparator.comparing(QueuedJob::priority).thenComparingLong(QueuedJob::sequence);
+
+    private final ChartJobStore store;
+    private final ChatClientService chatClientService;
+    private final ChartService chartService;
+    private final ChartMetrics metrics;
+
+    @Value("${chart.jobs.concurrency:4}")
+    private int concurrency;
+
+    @Value("${chart.jobs.queue-capacity:1000}")
+    private int queueCapacity;
+
+    @Value("${chart.jobs.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${chart.jobs.render-retries:5}")
+    private int renderRetries;
+
+    private final PriorityQueue<QueuedJob> queue = new PriorityQueue<>(QUEUE_ORDER);
+    private final Map<String, Sinks.One<ChartJob>> completions = new ConcurrentHashMap<>();
+    private int running;
+    private long sequence;
+
+    /**
+     * Re-queues the jobs that were queued or running when the service last stopped.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        metrics.bindJobQueue(this::queued, this::running);
+        store.evictExpired();
+
+        int resumed = 0;
+        for (ChartJob job : store.unfinished()) {
+            try {
+                if (job.status() == ChartJob.Status.RUNNING && job.attempts() >= maxAttempts) {
+                    log.warn("Chart job {} was interrupted {} times, giving up", job.id(), job.attempts());
+                    store.update(job.failed(store.now(), "Interrupted " + job.attempts() + " times"));
+                    continue;
+                }
+                ChartJob queuedJob = job.status() == ChartJob.Status.RUNNING ? store.update(job.requeued()) : job;
+                enqueue(queuedJob);
+                resumed++;
+            } catch (IOException e) {
+                log.error("Failed to resume chart job {}: {}", job.id(), e.getMessage());
+            }
+        }
+        if (resumed > 0) {
+            log.info("Resumed {} unfinished chart jobs", resumed);
+        }
+        drain();
+    }
+
+    /**
+     * Persists the request and queues it.
+     *
+     * @throws RejectedExecutionException when {@code chart.jobs.queue-capacity} jobs are already waiting
+     */
+    public ChartJob submit(ChartRequest request, ChartJob.Priority priority) throws IOException {
+        if (queued() >= queueCapacity) {
+            throw new RejectedExecutionException("Chart job queue is full");
+        }
+        ChartJob job = store.create(request, priority);
+        log.info("Queued chart job {} with priority {}", job.id(), priority);
+        enqueue(job);
+        drain();
+        return job;
+    }
+
+    public Optional<ChartJob> status(String id) {
+        return store.get(id);
+    }
+
+    /**
+     * The job's status once it has finished, or its current status after {@code wait}; empty if the job is unknown.
+     */
+    public Mono<ChartJob> awaitCompletion(String id, Duration wait) {
+        Sinks.One<ChartJob> completion = completions.get(id);
+        if (completion == null || wait.isZero() || wait.isNegative()) {
+            return Mono.justOrEmpty(store.get(id));
+        }
+        return completion.asMono().timeout(wait, Mono.defer(() -> Mono.justOrEmpty(store.get(id))));
+    }
+
+    public int queued() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+
+    public int running() {
+        synchronized (queue) {
+            return running;
+        }
+    }
+
+    private void enqueue(ChartJob job) {
+        completions.put(job.id(), Sinks.one());
+        synchronized (queue) {
+            queue.add(new QueuedJob(job.id(), job.priority(), sequence++));
+        }
+    }
+
+    private void drain() {
+        List<QueuedJob> toStart = new ArrayList<>();
+        synchronized (queue) {
+            while (running < concurrency && !queue.isEmpty()) {
+                running++;
+                toStart.add(queue.poll());
+            }
+        }
+        toStart.forEach(this::run);
+    }
+
+    private void run(QueuedJob queuedJob) {
+        String id = queuedJob.id();
+        Mono.fromCallable(() -> {
+                    ChartJob job = store.update(store.get(id).orElseThrow().started(store.now()));
+                    log.info("Starting chart job {} (attempt {})", id, job.attempts());
+                    return store.readRequest(id);
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(request -> chatClientService.analyzeDataForChartAsync(
+                                request.getData(),
+                                request.getTitle(),
+                                request.getDescription(),
+                                !Boolean.FALSE.equals(request.getIncludeReasoning()))
+                        .flatMap(analysis -> render(analysis, chartService.renderOptions(request))))
+                .publishOn(Schedulers.boundedElastic())
+                .map(result -> {
+                    try {
+                        store.saveResult(id, result.analysis(), result.image());
+                        return store.get(id).orElseThrow().succeeded(store.now(), result.analysis().getChartType());
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Failed to store job result: " + e.getMessage(), e);
+                    }
+                })
+                .onErrorResume(e -> {
+                    log.warn("Chart job {} failed: {}", id, e.getMessage());
+                    return Mono.justOrEmpty(store.get(id))
+                            .map(job -> job.failed(store.now(), e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName()));
+                })
+                .contextWrite(CallPriority.BACKGROUND.context())
+                .doFinally(signal -> {
+                    synchronized (queue) {
+                        running--;
+                    }
+                    drain();
+                })
+                .subscribe(this::finish);
+    }
+
+    private Mono<JobResult> render(ChartAnalysis analysis, RenderOptions options) {
+        // A full render queue is transient; back off instead of failing the job
+        return chartService.generateChartAsync(analysis, options, chartService.renderKey(analysis, options))
+                .retryWhen(Retry.backoff(renderRetries, Duration.ofMillis(100))
+                        .filter(RejectedExecutionException.class::isInstance))
+                .map(image -> new JobResult(analysis, image));
+    }
+
+    private void finish(ChartJob job) {
+        try {
+            store.update(job);
+        } catch (IOException e) {
+            log.error("Failed to persist final status of chart job {}: {}", job.id(), e.getMessage());
+        }
+        metrics.recordJob(job.priority().name().toLowerCase(Locale.ROOT), job.status().name().toLowerCase(Locale.ROOT),
+                Duration.between(job.createdAt(), job.finishedAt()));
+        Sinks.One<ChartJob> completion = completions.remove(job.id());
+        if (completion != null) {
+            completion.tryEmitValue(job);
+        }
+        store.evictExpired();
+    }
+
+    private record QueuedJob(String id, ChartJob.Priority priority, long sequence) {
+    }
+
+    private record JobResult(ChartAnalysis analysis, byte[] image) {
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartJob;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * File-backed store for asynchronous chart jobs: one directory per job holding its status, the
+ * request until the job finishes, and the analysis and PNG once it succeeds. Every file is written
+ * atomically, and the status file is written last on creation, so a job directory without one is
+ * an interrupted submit and is discarded on load. Statuses are also kept in memory, in creation
+ * order, so polling never touches the disk. Finished jobs are evicted after {@code retention},
+ * oldest first once more than {@code maxFinished} are kept, whenever a job finishes and on a
+ * periodic sweep. Job ids are generated UUIDs; any other id is unknown and never names a path.
+ */
+@Service
+@Slf4j
+public class ChartJobStore {
+
+    private static final String JOB_FILE = "job.json";
+    private static final String REQUEST_FILE = "request.json";
+    private static final String ANALYSIS_FILE = "analysis.json";
+    private static final String IMAGE_FILE = "chart.png";
+
+    private final Path directory;
+    private final Duration retention;
+    private final int maxFinished;
+    private final ObjectMapper objectMapper;
+    private final Clock clock;
+
+    private final Map<String, ChartJob> jobs = new LinkedHashMap<>();
+
+    @Value("${chart.jobs.sweep-interval:PT10M}")
+    private Duration sweepInterval = Duration.ofMinutes(10);
+
+    private Disposable sweeper;
+
+    @Autowired
+    public ChartJobStore(@Value("${chart.jobs.directory:${java.io.tmpdir}/generate-charts-llm/jobs}") String directory,
+                         @Value("${chart.jobs.retention:PT24H}") Duration retention,
+                         @Value("${chart.jobs.max-finished:10000}") int maxFinished,
+                         ObjectMapper objectMapper) {
+        this(Path.of(directory), retention, maxFinished, objectMapper, Clock.systemUTC());
+    }
+
+    ChartJobStore(Path directory, Duration retention, int maxFinished, ObjectMapper objectMapper, Clock clock) {
+        this.directory = directory;
+        this.retention = retention;
+        this.maxFinished = maxFinished;
+        this.objectMapper = objectMapper;
+        this.clock = clock;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot create job directory " + directory, e);
+        }
+        load();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        sweeper = Flux.interval(sweepInterval, sweepInterval, Schedulers.boundedElastic())
+                .subscribe(tick -> evictExpired());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    public Instant now() {
+        return clock.instant();
+    }
+
+    /**
+     * Persists a new queued job with its request.
+     */
+    public ChartJob create(ChartRequest request, ChartJob.Priority priority) throws IOException {
+        ChartJob job = ChartJob.queued(UUID.randomUUID().toString(), priority, request.getTitle(), clock.instant());
+        Path jobDirectory = jobDirectory(job.id());
+        Files.createDirectories(jobDirectory);
+        try {
+            write(jobDirectory.resolve(REQUEST_FILE), request);
+            write(jobDirectory.resolve(JOB_FILE), job);
+        } catch (IOException e) {
+            deleteDirectory(jobDirectory);
+            throw e;
+        }
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+        }
+        return job;
+    }
+
+    public Optional<ChartJob> get(String id) {
+        if (!isJobId(id)) {
+            return Optional.empty();
+        }
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(id));
+        }
+    }
+
+    /**
+     * Queued and running jobs in creation order.
+     */
+    public List<ChartJob> unfinished() {
+        synchronized (jobs) {
+            return jobs.values().stream().filter(job -> !job.status().isFinished()).toList();
+        }
+    }
+
+    /**
+     * Persists a state change. A finished job's request is no longer needed and is deleted.
+     */
+    public ChartJob update(ChartJob job) throws IOException {
+        Path jobDirectory = jobDirectory(job.id());
+        write(jobDirectory.resolve(JOB_FILE), job);
+        synchronized (jobs) {
+            jobs.put(job.id(), job);
+        }
+        if (job.status().isFinished()) {
+            Files.deleteIfExists(jobDirectory.resolve(REQUEST_FILE));
+        }
+        return job;
+    }
+
+    public ChartRequest readRequest(String id) throws IOException {
+        return objectMapper.readValue(jobDirectory(id).resolve(REQUEST_FILE).toFile(), ChartRequest.class);
+    }
+
+    /**
+     * Stores the results of a job; call before marking it succeeded.
+     */
+    public void saveResult(String id, ChartAnalysis analysis, byte[] image) throws IOException {
+        Path jobDirectory = jobDirectory(id);
+        write(jobDirectory.resolve(ANALYSIS_FILE), analysis);
+        writeAtomically(jobDirectory.resolve(IMAGE_FILE), image);
+    }
+
+    /**
+     * The analysis of a succeeded job, or empty if the job is unknown or has no result.
+     */
+    public Optional<ChartAnalysis> readAnalysis(String id) throws IOException {
+        if (!isSucceeded(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(objectMapper.readValue(jobDirectory(id).resolve(ANALYSIS_FILE).toFile(), ChartAnalysis.class));
+    }
+
+    /**
+     * The PNG of a succeeded job, or empty if the job is unknown or has no result.
+     */
+    public Optional<byte[]> readImage(String id) throws IOException {
+        if (!isSucceeded(id)) {
+            return Optional.empty();
+        }
+        return Optional.of(Files.readAllBytes(jobDirectory(id).resolve(IMAGE_FILE)));
+    }
+
+    /**
+     * Deletes finished jobs past their retention, then the oldest finished jobs beyond {@code maxFinished}.
+     *
+     * @return the number of jobs evicted
+     */
+    public int evictExpired() {
+        Instant expiry = clock.instant().minus(retention);
+        List<String> evicted = new ArrayList<>();
+        synchronized (jobs) {
+            List<ChartJob> finished = new ArrayList<>();
+            for (Iterator<ChartJob> it = jobs.values().iterator(); it.hasNext(); ) {
+                ChartJob job = it.next();
+                if (!job.status().isFinished()) {
+                    continue;
+                }
+                if (job.finishedAt().isBefore(expiry)) {
+                    it.remove();
+                    evicted.add(job.id());
+                } else {
+                    finished.add(job);
+                }
+            }
+            if (finished.size() > maxFinished) {
+                finished.sort(Comparator.comparing(ChartJob::finishedAt));
+                for (ChartJob job : finished.subList(0, finished.size() - maxFinished)) {
+                    jobs.remove(job.id());
+                    evicted.add(job.id());
+                }
+            }
+        }
+        evicted.forEach(id -> deleteDirectory(jobDirectory(id)));
+        if (!evicted.isEmpty()) {
+            log.debug("Evicted {} finished chart jobs", evicted.size());
+        }
+        return evicted.size();
+    }
+
+    /**
+     * True for ids in the canonical form of the UUIDs {@link #create} generates.
+     */
+    static boolean isJobId(String id) {
+        if (id == null || id.length() != 36) {
+            return false;
+        }
+        try {
+            return UUID.fromString(id).toString().equals(id);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private Path jobDirectory(String id) {
+        if (!isJobId(id)) {
+            throw new IllegalArgumentException("Not a chart job id: " + id);
+        }
+        return directory.resolve(id);
+    }
+
+    private boolean isSucceeded(String id) {
+        return get(id).map(job -> job.status() == ChartJob.Status.SUCCEEDED).orElse(false);
+    }
+
+    private void load() {
+        List<ChartJob> loaded = new ArrayList<>();
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path jobDirectory : entries) {
+                Path jobFile = jobDirectory.resolve(JOB_FILE);
+                if (!isJobId(jobDirectory.getFileName().toString()) || !Files.isRegularFile(jobFile)) {
+                    deleteDirectory(jobDirectory);
+                    continue;
+                }
+                try {
+                    ChartJob job = objectMapper.readValue(jobFile.toFile(), ChartJob.class);
+                    if (!jobDirectory.getFileName().toString().equals(job.id())) {
+                        throw new IOException("job id " + job.id() + " does not match its directory");
+                    }
+                    loaded.add(job);
+                } catch (IOException e) {
+                    log.warn("Discarding unreadable chart job {}: {}", jobDirectory, e.getMessage());
+                    deleteDirectory(jobDirectory);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot read job directory " + directory, e);
+        }
+        loaded.sort(Comparator.comparing(ChartJob::createdAt));
+        loaded.forEach(job -> jobs.put(job.id(), job));
+        if (!loaded.isEmpty()) {
+            log.info("Loaded {} chart jobs from {}", loaded.size(), directory);
+        }
+    }
+
+    private void write(Path file, Object value) throws IOException {
+        writeAtomically(file, objectMapper.writeValueAsBytes(value));
+    }
+
+    private static void writeAtomically(Path file, byte[] content) throws IOException {
+        Path tmp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.write(tmp, content);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    private static void deleteDirectory(Path jobDirectory) {
+        try (Stream<Path> files = Files.walk(jobDirectory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to delete chart job directory {}: {}", jobDirectory, e.getMessage());
+        }
+    }
+}
@@ -1,31 +1,167 @@
 package com.example.generatechartsllm.service;
 
+import com.example.generatechartsllm.dataset.ColumnarCategoryDataset;
+import com.example.generatechartsllm.dataset.ColumnarXYDataset;
+import com.example.generatechartsllm.downsampling.Downsampler;
+import com.example.generatechartsllm.downsampling.DownsamplingMode;
+import com.example.generatechartsllm.metrics.ChartMetrics;
 import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.model.SeriesData;
+import com.example.generatechartsllm.util.CanonicalJson;
+import com.example.generatechartsllm.util.SingleFlight;
+import io.micrometer.core.instrument.Timer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.jfree.chart.ChartFactory;
-import org.jfree.chart.ChartUtils;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.plot.PlotOrientation;
-import org.jfree.data.category.DefaultCategoryDataset;
+import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.general.DefaultPieDataset;
-import org.jfree.data.xy.XYSeries;
-import org.jfree.data.xy.XYSeriesCollection;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.io.ByteArrayOutputStream;
+import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
-import java.util.Map;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class ChartService {
 
+    private final ChartImageCache imageCache;
+    private final Scheduler chartRenderScheduler;
+    private final ChartMetrics metrics;
+    private final SingleFlight<String, byte[]> inFlightRenders = new SingleFlight<>();
+
+    @Value("${chart.render.width:800}")
+    private int width;
+
+    @Value("${chart.render.height:600}")
+    private int height;
+
+    @Value("${chart.render.compression-level:4}")
+    private int compressionLevel;
+
     public byte[] generateChart(ChartAnalysis analysis) throws IOException {
+        return generateChart(analysis, defaultRenderOptions());
+    }
+
+    /**
+     * Renders the chart, or returns the cached image previously rendered for the same analysis and options.
+     */
+    public byte[] generateChart(ChartAnalysis analysis, RenderOptions options) throws IOException {
+        String renderKey = renderKey(analysis, options);
+        byte[] cached = imageCache.get(renderKey);
+        if (cached != null) {
+            log.debug("Returning cached {} chart image", analysis.getChartType());
+            return cached;
+        }
+
+        byte[] image = renderChart(analysis, options);
+        imageCache.put(renderKey, image);
+        return image;
+    }
+
+    /**
+     * Non-blocking variant of {@link #generateChart(ChartAnalysis, RenderOptions)}; rendering runs on the
+     * dedicated render scheduler. The key must come from {@link #renderKey(ChartAnalysis, RenderOptions)}.
+     */
+    public Mono<byte[]> generateChartAsync(ChartAnalysis analysis, RenderOptions options, String renderKey) {
+        return Mono.defer(() -> {
+            byte[] cached = imageCache.get(renderKey);
+            if (cached != null) {
+                log.debug("Returning cached {} chart image", analysis.getChartType());
+                return Mono.just(cached);
+            }
+            // Identical concurrent renders share one rendering pass
+            return inFlightRenders.execute(renderKey, () -> Mono.fromCallable(() -> {
+                byte[] image = renderChart(analysis, options);
+                imageCache.put(renderKey, image);
+                return image;
+            }).subscribeOn(chartRenderScheduler));
+        });
+    }
+
+    /**
+     * Renders on the render scheduler without consulting or filling the image cache, for data that
+     * changes between renders.
+     */
+    public Mono<byte[]> renderAsync(ChartAnalysis analysis, RenderOptions options) {
+        return Mono.fromCallable(() -> renderChart(analysis, options)).subscribeOn(chartRenderScheduler);
+    }
+
+    public RenderOptions defaultRenderOptions() {
+        return new RenderOptions(width, height, DownsamplingMode.AUTO, compressionLevel);
+    }
+
+    /**
+     * Default render options with the per-request overrides applied.
+     */
+    public RenderOptions renderOptions(ChartRequest request) {
+        RenderOptions options = defaultRenderOptions();
+        options.setDownsampling(DownsamplingMode.parse(request.getDownsampling()));
+        Integer level = request.getCompressionLevel();
+        if (level != null && level >= 0 && level <= 9) {
+            options.setCompressionLevel(level);
+        }
+        return options;
+    }
+
+    /**
+     * Stable digest of everything that affects the rendered image: chart type, labels,
+     * categories, series and render options. Suitable for use as a strong ETag.
+     */
+    public String renderKey(ChartAnalysis analysis, RenderOptions options) {
+        MessageDigest digest = CanonicalJson.newDigest();
+        CanonicalJson.update(digest, analysis.getChartType());
+        CanonicalJson.update(digest, analysis.getTitle());
+        CanonicalJson.update(digest, analysis.getXAxisLabel());
+        CanonicalJson.update(digest, analysis.getYAxisLabel());
+
+        List<String> categories = analysis.getCategories();
+        digest.update(ByteBuffer.allocate(4).putInt(categories == null ? -1 : categories.size()).array());
+        if (categories != null) {
+            categories.forEach(category -> CanonicalJson.update(digest, category));
+        }
+
+        SeriesData series = analysis.getSeries();
+        digest.update(ByteBuffer.allocate(4).putInt(series == null ? -1 : series.size()).array());
+        if (series != null) {
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 512);
+            series.forEach((name, values) -> {
+                CanonicalJson.update(digest, name);
+                digest.update(buffer.clear().putInt(values.length).array(), 0, 4);
+                buffer.clear();
+                for (double value : values) {
+                    if (!buffer.hasRemaining()) {
+                        digest.update(buffer.array(), 0, buffer.position());
+                        buffer.clear();
+                    }
+                    buffer.putDouble(value);
+                }
+                digest.update(buffer.array(), 0, buffer.position());
+            });
+        }
+
+        digest.update(ByteBuffer.allocate(12).putInt(options.getWidth()).putInt(options.getHeight())
+                .putInt(options.getCompressionLevel()).array());
+        CanonicalJson.update(digest, options.getDownsampling().name());
+        return CanonicalJson.hex(digest);
+    }
+
+    private byte[] renderChart(ChartAnalysis analysis, RenderOptions options) throws IOException {
         log.info("Generating {} chart: {}", analysis.getChartType(), analysis.getTitle());
 
+        Timer.Sample datasetSample = metrics.start();
         JFreeChart chart;
 
         switch (analysis.getChartType().toUpperCase()) {
@@ -33,33 +169,30 @@ public class ChartService {
                 chart = createBarChart(analysis);
                 break;
             case "LINE":
-                chart = createLineChart(analysis);
+                chart = createLineChart(analysis, options);
                 break;
             case "PIE":
                 chart = createPieChart(analysis);
                 break;
             case "SCATTER":
-                chart = createScatterChart(analysis);
+                chart = createScatterChart(analysis, options);
                 break;
             default:
                 log.warn("Unknown chart type: {}, defaulting to BAR", analysis.getChartType());
                 chart = createBarChart(analysis);
         }
+        metrics.recordStage(datasetSample, ChartMetrics.STAGE_DATASET, analysis.getChartType(), null, ChartMetrics.OUTCOME_SUCCESS);
 
-        return convertChartToBytes(chart);
+        byte[] image = convertChartToBytes(chart, analysis.getChartType(), options);
+        metrics.recordImageSize(analysis.getChartType(), image.length);
+        return image;
     }
 
     private JFreeChart createBarChart(ChartAnalysis analysis) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-        Map<String, List<Double>> series = analysis.getSeries();
+        SeriesData series = analysis.getSeries();
         List<String> categories = analysis.getCategories();
 
-        series.forEach((seriesName, values) -> {
-            for (int i = 0; i < values.size() && i < categories.size(); i++) {
-                dataset.addValue(values.get(i), seriesName, categories.get(i));
-            }
-        });
+        CategoryDataset dataset = new ColumnarCategoryDataset(series, categories, Downsampler.all(categories.size()));
 
         return ChartFactory.createBarChart(
                 analysis.getTitle(),
@@ -73,17 +206,33 @@ public class ChartService {
         );
     }
 
-    private JFreeChart createLineChart(ChartAnalysis analysis) {
-        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
-
-        Map<String, List<Double>> series = analysis.getSeries();
+    private JFreeChart createLineChart(ChartAnalysis analysis, RenderOptions options) {
+        SeriesData series = analysis.getSeries();
         List<String> categories = analysis.getCategories();
 
-        series.forEach((seriesName, values) -> {
-            for (int i = 0; i < values.size() && i < categories.size(); i++) {
-                dataset.addValue(values.get(i), seriesName, categories.get(i));
+        // Categories are shared by all series, so keep the union of the points each series needs
+        Downsampler downsampler = options.getDownsampling().downsamplerFor("LINE");
+        int length = 0;
+        for (int s = 0; s < series.size(); s++) {
+            length = Math.max(length, Math.min(series.values(s).length, categories.size()));
+        }
+        int[] rows = Downsampler.all(length);
+        if (downsampler != null && length > options.getWidth()) {
+            BitSet keep = new BitSet(length);
+            for (int s = 0; s < series.size(); s++) {
+                double[] values = series.values(s);
+                if (values.length > categories.size()) {
+                    values = Arrays.copyOf(values, categories.size());
+                }
+                for (int index : downsampler.select(values, options.getWidth())) {
+                    keep.set(index);
+                }
             }
-        });
+            rows = keep.stream().toArray();
+            log.debug("Downsampled line chart from {} to {} points", length, rows.length);
+        }
+
+        CategoryDataset dataset = new ColumnarCategoryDataset(series, categories, rows);
 
         return ChartFactory.createLineChart(
                 analysis.getTitle(),
@@ -101,13 +250,13 @@ public class ChartService {
         DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
 
         List<String> categories = analysis.getCategories();
-        Map<String, List<Double>> series = analysis.getSeries();
+        SeriesData series = analysis.getSeries();
 
         // For pie chart, use the first series
         if (!series.isEmpty()) {
-            List<Double> values = series.values().iterator().next();
-            for (int i = 0; i < categories.size() && i < values.size(); i++) {
-                dataset.setValue(categories.get(i), values.get(i));
+            double[] values = series.values(0);
+            for (int i = 0; i < categories.size() && i < values.length; i++) {
+                dataset.setValue(categories.get(i), values[i]);
             }
         }
 
@@ -120,17 +269,17 @@ public class ChartService {
         );
     }
 
-    private JFreeChart createScatterChart(ChartAnalysis analysis) {
-        XYSeriesCollection dataset = new XYSeriesCollection();
+    private JFreeChart createScatterChart(ChartAnalysis analysis, RenderOptions options) {
+        ColumnarXYDataset dataset = new ColumnarXYDataset();
 
-        Map<String, List<Double>> series = analysis.getSeries();
+        SeriesData series = analysis.getSeries();
+        Downsampler downsampler = options.getDownsampling().downsamplerFor("SCATTER");
 
         series.forEach((seriesName, values) -> {
-            XYSeries xySeries = new XYSeries(seriesName);
-            for (int i = 0; i < values.size(); i++) {
-                xySeries.add(i, values.get(i));
-            }
-            dataset.addSeries(xySeries);
+            int[] rows = downsampler != null && values.length > options.getWidth()
+                    ? downsampler.select(values, options.getWidth())
+                    : Downsampler.all(values.length);
+            dataset.addSeries(seriesName, values, rows);
         });
 
         return ChartFactory.createScatterPlot(
@@ -145,10 +294,16 @@ public class ChartService {
         );
     }
 
-    private byte[] convertChartToBytes(JFreeChart chart) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ChartUtils.writeChartAsPNG(baos, chart, 800, 600);
-        return baos.toByteArray();
+    private byte[] convertChartToBytes(JFreeChart chart, String chartType, RenderOptions options) throws IOException {
+        RenderBuffers buffers = RenderBuffers.current();
+
+        Timer.Sample drawSample = metrics.start();
+        BufferedImage image = buffers.draw(chart, options.getWidth(), options.getHeight());
+        metrics.recordStage(drawSample, ChartMetrics.STAGE_DRAW, chartType, null, ChartMetrics.OUTCOME_SUCCESS);
+
+        Timer.Sample encodeSample = metrics.start();
+        byte[] png = buffers.encode(image, options.getCompressionLevel());
+        metrics.recordStage(encodeSample, ChartMetrics.STAGE_ENCODE, chartType, null, ChartMetrics.OUTCOME_SUCCESS);
+        return png;
     }
 }
-
@@ -0,0 +1,185 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartSessionInfo;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.model.SeriesData;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One live chart: the analysis decided when the session was created plus a sliding window of the
+ * most recent points, kept in ring buffers that updates write into in place. An update costs time
+ * proportional to its own size; the oldest points are overwritten once the window is full.
+ */
+final class ChartSession {
+
+    private final String id;
+    private final ChartAnalysis chart; // type and labels; categories and series live in the buffers
+    private final RenderOptions options;
+    private final List<String> seriesNames;
+    private final Map<String, Integer> seriesIndex = new HashMap<>();
+    private final String[] categories;
+    private final double[][] values;
+
+    private int head;
+    private int size;
+    private long version;
+    private long lastAccess;
+    private long imageVersion = -1;
+    private byte[] image;
+
+    /**
+     * Seeds the window with the last {@code window} points of the analysis.
+     */
+    ChartSession(String id, ChartAnalysis analysis, RenderOptions options, int window, long now) {
+        this.id = id;
+        this.options = options;
+        this.chart = new ChartAnalysis(analysis.getChartType(), analysis.getTitle(), analysis.getXAxisLabel(),
+                analysis.getYAxisLabel(), null, null, analysis.getReasoning(), analysis.getConfidence());
+
+        SeriesData series = analysis.getSeries() != null ? analysis.getSeries() : new SeriesData();
+        this.seriesNames = List.copyOf(series.names());
+        for (int s = 0; s < seriesNames.size(); s++) {
+            seriesIndex.put(seriesNames.get(s), s);
+        }
+        this.categories = new String[window];
+        this.values = new double[seriesNames.size()][window];
+
+        List<String> seed = analysis.getCategories() != null ? analysis.getCategories() : List.of();
+        for (int row = Math.max(0, seed.size() - window); row < seed.size(); row++) {
+            int slot = push(seed.get(row));
+            for (int s = 0; s < values.length; s++) {
+                double[] seriesValues = series.values(s);
+                values[s][slot] = row < seriesValues.length ? seriesValues[row] : Double.NaN;
+            }
+        }
+        this.lastAccess = now;
+    }
+
+    String id() {
+        return id;
+    }
+
+    RenderOptions options() {
+        return options;
+    }
+
+    /**
+     * Appends the points in order, or updates the newest point in place when a point repeats its category.
+     *
+     * @throws IllegalArgumentException if categories are missing, a series is unknown, or its length differs
+     */
+    synchronized ChartSessionInfo append(List<String> newCategories, SeriesData delta, long now) {
+        if (newCategories == null || newCategories.isEmpty()) {
+            throw new IllegalArgumentException("categories must not be empty");
+        }
+        for (String category : newCategories) {
+            if (category == null) {
+                throw new IllegalArgumentException("categories must not contain null");
+            }
+        }
+        double[][] columns = new double[values.length][];
+        if (delta != null) {
+            for (int d = 0; d < delta.size(); d++) {
+                Integer s = seriesIndex.get(delta.name(d));
+                if (s == null) {
+                    throw new IllegalArgumentException("Unknown series '" + delta.name(d) + "'; expected one of " + seriesNames);
+                }
+                if (delta.values(d).length != newCategories.size()) {
+                    throw new IllegalArgumentException("Series '" + delta.name(d) + "' has " + delta.values(d).length
+                            + " values for " + newCategories.size() + " categories");
+                }
+                columns[s] = delta.values(d);
+            }
+        }
+
+        for (int i = 0; i < newCategories.size(); i++) {
+            String category = newCategories.get(i);
+            int newest = (head + size - 1) % categories.length;
+            boolean update = size > 0 && category.equals(categories[newest]);
+            int slot = update ? newest : push(category);
+            for (int s = 0; s < values.length; s++) {
+                if (columns[s] != null) {
+                    values[s][slot] = columns[s][i];
+                } else if (!update) {
+                    values[s][slot] = Double.NaN;
+                }
+            }
+        }
+        version++;
+        lastAccess = now;
+        return info();
+    }
+
+    /**
+     * Copy of the window, oldest point first, as an analysis the renderer accepts.
+     */
+    synchronized Snapshot snapshot(long now) {
+        lastAccess = now;
+        int firstPart = Math.min(size, categories.length - head);
+        String[] window = new String[size];
+        System.arraycopy(categories, head, window, 0, firstPart);
+        System.arraycopy(categories, 0, window, firstPart, size - firstPart);
+
+        SeriesData series = new SeriesData();
+        for (int s = 0; s < values.length; s++) {
+            double[] copy = new double[size];
+            System.arraycopy(values[s], head, copy, 0, firstPart);
+            System.arraycopy(values[s], 0, copy, firstPart, size - firstPart);
+            series.put(seriesNames.get(s), copy);
+        }
+        return new Snapshot(version, new ChartAnalysis(chart.getChartType(), chart.getTitle(), chart.getXAxisLabel(),
+                chart.getYAxisLabel(), Arrays.asList(window), series, chart.getReasoning(), chart.getConfidence()));
+    }
+
+    /**
+     * The image rendered for the current version, or null if the window changed since the last render.
+     */
+    synchronized ChartSessionService.SessionChart currentImage(long now) {
+        lastAccess = now;
+        return imageVersion == version ? new ChartSessionService.SessionChart(version, image) : null;
+    }
+
+    synchronized void cacheImage(long renderedVersion, byte[] renderedImage) {
+        if (renderedVersion > imageVersion) {
+            imageVersion = renderedVersion;
+            image = renderedImage;
+        }
+    }
+
+    synchronized ChartSessionInfo touch(long now) {
+        lastAccess = now;
+        return info();
+    }
+
+    synchronized boolean idleSince(long cutoff) {
+        return lastAccess < cutoff;
+    }
+
+    private ChartSessionInfo info() {
+        return new ChartSessionInfo(id, chart.getChartType(), chart.getTitle(), seriesNames, size, categories.length, version);
+    }
+
+    /**
+     * Claims the slot after the newest point, dropping the oldest point when the window is full.
+     */
+    private int push(String category) {
+        int slot;
+        if (size < categories.length) {
+            slot = (head + size) % categories.length;
+            size++;
+        } else {
+            slot = head;
+            head = (head + 1) % categories.length;
+        }
+        categories[slot] = category;
+        return slot;
+    }
+
+    record Snapshot(long version, ChartAnalysis analysis) {
+    }
+}
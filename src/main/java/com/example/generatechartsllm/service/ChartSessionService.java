@@ -0,0 +1,173 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.ChartSessionInfo;
+import com.example.generatechartsllm.model.ChartSessionUpdate;
+import com.example.generatechartsllm.util.CallPriority;
+import com.example.generatechartsllm.util.SingleFlight;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Live charts that are analyzed once and then fed only new points. Each {@link ChartSession} keeps a
+ * sliding window of its data in memory and re-renders it on demand, at most once per update.
+ * Sessions idle for {@code chart.sessions.idle-timeout} are evicted.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class ChartSessionService {
+
+    private final ChatClientService chatClientService;
+    private final ChartService chartService;
+    private final ChartMetrics metrics;
+
+    @Value("${chart.sessions.window:1000}")
+    private int defaultWindow;
+
+    @Value("${chart.sessions.max-window:100000}")
+    private int maxWindow;
+
+    @Value("${chart.sessions.max-sessions:1000}")
+    private int maxSessions;
+
+    @Value("${chart.sessions.idle-timeout:PT30M}")
+    private Duration idleTimeout;
+
+    @Value("${chart.sessions.sweep-interval:PT1M}")
+    private Duration sweepInterval;
+
+    private final Map<String, ChartSession> sessions = new ConcurrentHashMap<>();
+    private final SingleFlight<String, byte[]> inFlightRenders = new SingleFlight<>();
+    private Disposable sweeper;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        metrics.bindSessions(sessions::size);
+        sweeper = Flux.interval(sweepInterval).subscribe(tick -> evictIdle());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.dispose();
+        }
+    }
+
+    /**
+     * Analyzes the request's data and opens a session seeded with its last {@code window} points.
+     * Signals {@link RejectedExecutionException} when {@code chart.sessions.max-sessions} sessions are open.
+     *
+     * @throws IllegalArgumentException if the window is outside 1..{@code chart.sessions.max-window}
+     */
+    public Mono<ChartSessionInfo> create(ChartRequest request, Integer window) {
+        int size = window != null ? window : defaultWindow;
+        if (size < 1 || size > maxWindow) {
+            throw new IllegalArgumentException("window must be between 1 and " + maxWindow);
+        }
+        return Mono.defer(() -> {
+                    evictIdle();
+                    if (sessions.size() >= maxSessions) {
+                        return Mono.error(new RejectedExecutionException("Too many open chart sessions"));
+                    }
+                    return chatClientService.analyzeDataForChartAsync(request.getData(), request.getTitle(),
+                            request.getDescription(), false);
+                })
+                .map(analysis -> {
+                    // Checked again: other sessions may have opened while this one was being analyzed
+                    if (sessions.size() >= maxSessions) {
+                        throw new RejectedExecutionException("Too many open chart sessions");
+                    }
+                    ChartSession session = new ChartSession(UUID.randomUUID().toString(), analysis,
+                            chartService.renderOptions(request), size, now());
+                    sessions.put(session.id(), session);
+                    log.info("Opened {} chart session {} with a window of {} points", analysis.getChartType(), session.id(), size);
+                    return session.touch(now());
+                })
+                .contextWrite(CallPriority.INTERACTIVE.context());
+    }
+
+    public Optional<ChartSessionInfo> get(String id) {
+        ChartSession session = sessions.get(id);
+        return session != null ? Optional.of(session.touch(now())) : Optional.empty();
+    }
+
+    /**
+     * Adds the update's points to the session; empty if the session is unknown.
+     *
+     * @throws IllegalArgumentException if the update does not fit the session's series
+     */
+    public Optional<ChartSessionInfo> append(String id, ChartSessionUpdate update) {
+        ChartSession session = sessions.get(id);
+        if (session == null) {
+            return Optional.empty();
+        }
+        return Optional.of(session.append(update.getCategories(), update.getSeries(), now()));
+    }
+
+    /**
+     * The chart of the session's current window; empty if the session is unknown. Renders only when
+     * the window changed since the last render, and concurrent requests for one version share a render.
+     */
+    public Mono<SessionChart> render(String id) {
+        return Mono.defer(() -> {
+            ChartSession session = sessions.get(id);
+            if (session == null) {
+                return Mono.empty();
+            }
+            SessionChart current = session.currentImage(now());
+            if (current != null) {
+                return Mono.just(current);
+            }
+            ChartSession.Snapshot snapshot = session.snapshot(now());
+            return inFlightRenders.execute(id + ":" + snapshot.version(), () ->
+                            chartService.renderAsync(snapshot.analysis(), session.options())
+                                    .doOnNext(image -> session.cacheImage(snapshot.version(), image)))
+                    .map(image -> new SessionChart(snapshot.version(), image));
+        });
+    }
+
+    public boolean close(String id) {
+        boolean closed = sessions.remove(id) != null;
+        if (closed) {
+            log.info("Closed chart session {}", id);
+        }
+        return closed;
+    }
+
+    void evictIdle() {
+        long cutoff = now() - idleTimeout.toMillis();
+        int before = sessions.size();
+        sessions.values().removeIf(session -> session.idleSince(cutoff));
+        int evicted = before - sessions.size();
+        if (evicted > 0) {
+            log.info("Evicted {} idle chart sessions", evicted);
+        }
+    }
+
+    private static long now() {
+        return System.currentTimeMillis();
+    }
+
+    /**
+     * A rendered chart and the session version it shows.
+     */
+    public record SessionChart(long version, byte[] image) {
+    }
+}
@@ -1,16 +1,50 @@
 package com.example.generatechartsllm.service;
 
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.data.DataTables;
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.AnalysisEvent;
 import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.FieldMapping;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.example.generatechartsllm.util.AdaptiveLimiter;
+import com.example.generatechartsllm.util.CallPriority;
+import com.example.generatechartsllm.util.CircuitBreaker;
+import com.example.generatechartsllm.util.LatencyTracker;
+import com.example.generatechartsllm.util.SingleFlight;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
-
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -18,63 +52,542 @@ import java.util.regex.Pattern;
 @Slf4j
 public class ChatClientService {
 
+    /** Recent calls needed before the observed percentile replaces the minimum hedge delay. */
+    private static final int HEDGE_MIN_SAMPLES = 20;
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_EVENT = new ParameterizedTypeReference<>() {
+    };
+    private static final String STREAM_DONE = "[DONE]";
+
     private final WebClient webClient;
     private final ObjectMapper objectMapper;
+    private final AnalysisCache analysisCache;
+    private final MappingTemplateCache templateCache;
+    private final ChartInferenceEngine inferenceEngine;
+    private final PromptCompactor promptCompactor;
+    private final ChartMetrics metrics;
+    private final CircuitBreaker circuitBreaker;
+    private final AdaptiveLimiter limiter;
+    private final SingleFlight<String, ChartAnalysis> inFlightAnalyses = new SingleFlight<>();
+    private final LatencyTracker latencies = new LatencyTracker(256);
 
     @Value("${openai.model:gpt-4}")
     private String model;
 
+    @Value("${chart.cache.template.enabled:true}")
+    private boolean templatesEnabled;
+
+    @Value("${chart.inference.enabled:true}")
+    private boolean inferenceEnabled;
+
+    @Value("${chart.inference.confidence-threshold:0.85}")
+    private double inferenceThreshold;
+
+    @Value("${chart.llm.stream:false}")
+    private boolean streamingEnabled;
+
+    @Value("${chart.llm.deadline:PT90S}")
+    private Duration deadline;
+
+    @Value("${chart.llm.limiter.enabled:true}")
+    private boolean limiterEnabled;
+
+    @Value("${chart.llm.limiter.rate-limit-retries:2}")
+    private int rateLimitRetries;
+
+    @Value("${chart.llm.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${chart.llm.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${chart.llm.hedge.min-delay:PT2S}")
+    private Duration hedgeMinDelay;
+
     public ChatClientService(@Value("${openai.api.url}") String apiUrl,
-                             @Value("${openai.api.key}") String apiKey) {
+                             @Value("${openai.api.key}") String apiKey,
+                             ClientHttpConnector llmHttpConnector,
+                             CircuitBreaker llmCircuitBreaker,
+                             AdaptiveLimiter llmLimiter,
+                             AnalysisCache analysisCache,
+                             MappingTemplateCache templateCache,
+                             ChartInferenceEngine inferenceEngine,
+                             PromptCompactor promptCompactor,
+                             ChartMetrics metrics) {
         this.webClient = WebClient.builder()
+                .clientConnector(llmHttpConnector)
                 .baseUrl(apiUrl)
                 .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
                 .defaultHeader(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
                 .build();
         this.objectMapper = new ObjectMapper();
+        this.analysisCache = analysisCache;
+        this.templateCache = templateCache;
+        this.inferenceEngine = inferenceEngine;
+        this.promptCompactor = promptCompactor;
+        this.metrics = metrics;
+        this.circuitBreaker = llmCircuitBreaker;
+        this.limiter = llmLimiter;
+        metrics.bindCircuitBreaker(llmCircuitBreaker);
+        metrics.bindLimiter(llmLimiter);
+    }
+
+    /**
+     * Opens up to {@code connections} pooled connections to the provider ahead of the first call, so that
+     * it does not pay for DNS, TCP and TLS setup. Any response, error statuses included, leaves a
+     * keep-alive connection in the pool. Bypasses the limiter and the circuit breaker; failures are only logged.
+     *
+     * @return how many of the requests got a response
+     */
+    public Mono<Long> preconnect(int connections, Duration timeout) {
+        return Flux.range(0, connections)
+                .flatMap(i -> webClient.head()
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode()))
+                        .timeout(timeout)
+                        .onErrorResume(e -> {
+                            log.debug("Could not pre-open an LLM connection: {}", e.toString());
+                            return Mono.empty();
+                        }), Math.max(1, connections))
+                .count();
     }
 
     public ChartAnalysis analyzeDataForChart(JsonNode data, String userTitle, String userDescription) {
-        String prompt = buildPrompt(data, userTitle, userDescription);
+        return analyzeDataForChartAsync(data, userTitle, userDescription).block();
+    }
+
+    /**
+     * Non-blocking variant of {@link #analyzeDataForChart}: no thread is held while the LLM call is in flight.
+     * Errors never surface to the subscriber; they resolve to the fallback analysis instead.
+     */
+    public Mono<ChartAnalysis> analyzeDataForChartAsync(JsonNode data, String userTitle, String userDescription) {
+        return analyzeDataForChartAsync(data, userTitle, userDescription, true);
+    }
+
+    /**
+     * @param includeReasoning false when the caller has no use for the reasoning text; with a streaming
+     *                         LLM response, reading then stops as soon as the chart can be rendered
+     */
+    public Mono<ChartAnalysis> analyzeDataForChartAsync(JsonNode data, String userTitle, String userDescription,
+                                                        boolean includeReasoning) {
+        return analyzeData(data, userTitle, userDescription, includeReasoning, null);
+    }
+
+    /**
+     * Like {@link #analyzeDataForChartAsync(JsonNode, String, String, boolean)}, but also emits each
+     * analysis field as soon as the streaming LLM response completes it. The last event always carries
+     * the full analysis; heuristic, cached and fallback analyses produce only that event. Identical
+     * concurrent requests share one LLM call, and only the caller that started it receives field events;
+     * the others receive only the final event.
+     */
+    public Flux<AnalysisEvent> analyzeDataForChartEvents(JsonNode data, String userTitle, String userDescription,
+                                                         boolean includeReasoning) {
+        return Flux.create(sink -> {
+            Disposable analysis = analyzeData(data, userTitle, userDescription, includeReasoning,
+                    (name, value) -> sink.next(AnalysisEvent.field(name, value)))
+                    .subscribe(result -> {
+                        sink.next(AnalysisEvent.analysis(result));
+                        sink.complete();
+                    }, sink::error);
+            sink.onDispose(analysis);
+        });
+    }
+
+    private Mono<ChartAnalysis> analyzeData(JsonNode data, String userTitle, String userDescription,
+                                            boolean includeReasoning, StreamingAnalysisParser.FieldListener listener) {
+        // Inference, templates and prompt compaction all work on the same table; build it at most once
+        Supplier<DataTable> table = memoize(() -> DataTables.fromJson(data));
+        return analyze(
+                () -> inferenceEngine.infer(table.get(), userTitle, userDescription),
+                () -> analysisCache.keyFor(data, userTitle, userDescription, model),
+                () -> table.get() != null ? templateCache.keyFor(data, userTitle, userDescription, model) : null,
+                table,
+                () -> preparePrompt(data, table, userTitle, userDescription),
+                () -> createFallbackAnalysis(table.get(), userTitle),
+                includeReasoning, listener);
+    }
+
+    /**
+     * Analyzes data that was ingested straight into a table. The LLM always sees the compact
+     * summary and its field mapping is applied to the full table.
+     */
+    public Mono<ChartAnalysis> analyzeTableAsync(DataTable table, String userTitle, String userDescription) {
+        return analyzeTableAsync(table, userTitle, userDescription, true);
+    }
+
+    public Mono<ChartAnalysis> analyzeTableAsync(DataTable table, String userTitle, String userDescription,
+                                                 boolean includeReasoning) {
+        return analyze(
+                () -> inferenceEngine.infer(table, userTitle, userDescription),
+                () -> analysisCache.keyFor(table, userTitle, userDescription, model),
+                () -> templateCache.keyFor(table, userTitle, userDescription, model),
+                () -> table,
+                () -> new PreparedPrompt(buildCompactPrompt(promptCompactor.summarize(table), userTitle, userDescription), table),
+                () -> createFallbackAnalysis(table, userTitle),
+                includeReasoning, null);
+    }
+
+    /**
+     * @param templateKeySupplier shape key for {@link MappingTemplateCache}, or null when the data is not tabular
+     * @param tableSupplier       the data as a table, or null when it is not tabular
+     */
+    private Mono<ChartAnalysis> analyze(Supplier<ChartAnalysis> inference,
+                                        Supplier<String> cacheKeySupplier,
+                                        Supplier<String> templateKeySupplier,
+                                        Supplier<DataTable> tableSupplier,
+                                        Supplier<PreparedPrompt> promptSupplier,
+                                        Supplier<ChartAnalysis> fallback,
+                                        boolean includeReasoning,
+                                        StreamingAnalysisParser.FieldListener listener) {
+        // Reasoning is only ever dropped from streamed responses, and such analyses are cached separately
+        boolean skipReasoning = streamingEnabled && !includeReasoning;
+        return Mono.defer(() -> {
+            Timer.Sample analysisSample = metrics.start();
+            long startNanos = System.nanoTime();
+            return Mono.defer(() -> {
+                if (inferenceEnabled) {
+                    ChartAnalysis inferred = inference.get();
+                    if (inferred.getConfidence() >= inferenceThreshold) {
+                        log.info("Heuristic inference is confident ({}), skipping LLM", inferred.getConfidence());
+                        metrics.recordAnalysis(analysisSample, model, ChartMetrics.OUTCOME_HEURISTIC, inferred);
+                        return Mono.just(inferred);
+                    }
+                }
+
+                String cacheKey = cacheKeySupplier.get() + (skipReasoning ? "-r0" : "");
+                ChartAnalysis cached = analysisCache.get(cacheKey);
+                if (cached != null) {
+                    log.info("Returning cached chart analysis");
+                    metrics.recordAnalysis(analysisSample, model, ChartMetrics.OUTCOME_CACHE, cached);
+                    return Mono.just(cached);
+                }
+
+                String templateKey = templatesEnabled ? templateKeySupplier.get() : null;
+                ChartAnalysis fromTemplate = applyTemplate(templateKey, tableSupplier, includeReasoning);
+                if (fromTemplate != null) {
+                    log.info("Built chart analysis from the cached template for this data shape");
+                    metrics.recordAnalysis(analysisSample, model, ChartMetrics.OUTCOME_TEMPLATE, fromTemplate);
+                    return Mono.just(fromTemplate);
+                }
+
+                // Whatever is left of the deadline bounds the LLM call; each waiter also enforces its own
+                Duration remaining = deadline.minusNanos(System.nanoTime() - startNanos);
+                if (remaining.isNegative() || remaining.isZero()) {
+                    return Mono.error(new TimeoutException("Deadline exhausted before the LLM call"));
+                }
+
+                // Identical concurrent requests share one LLM call; field events go to the listener of the caller that started it
+                return inFlightAnalyses.execute(cacheKey,
+                                () -> callLlm(cacheKey, promptSupplier, remaining, skipReasoning, listener)
+                                        .doOnNext(analysis -> learnTemplate(templateKey, tableSupplier, analysis)))
+                        .timeout(remaining)
+                        .doOnNext(analysis -> metrics.recordAnalysis(analysisSample, model, ChartMetrics.OUTCOME_LLM, analysis));
+            }).onErrorResume(e -> {
+                if (e instanceof CircuitBreaker.OpenException) {
+                    log.warn("{}, using fallback analysis", e.getMessage());
+                } else if (e instanceof TimeoutException) {
+                    log.warn("LLM call exceeded the {} deadline, using fallback analysis", deadline);
+                } else {
+                    log.error("Error calling LLM API: {}", e.getMessage(), e);
+                }
+                // Return a default chart analysis as fallback
+                return Mono.fromCallable(fallback::get)
+                        .doOnNext(analysis -> metrics.recordAnalysis(analysisSample, model, ChartMetrics.OUTCOME_FALLBACK, analysis));
+            });
+        });
+    }
+
+    /**
+     * The analysis for a known data shape, or null when there is no usable template. A template that
+     * no longer fits the data is dropped. Templates learned without reasoning are not used when it is wanted.
+     */
+    private ChartAnalysis applyTemplate(String templateKey, Supplier<DataTable> tableSupplier, boolean includeReasoning) {
+        if (templateKey == null) {
+            return null;
+        }
+        MappingTemplate template = templateCache.get(templateKey);
+        if (template == null || (includeReasoning && (template.getReasoning() == null || template.getReasoning().isEmpty()))) {
+            return null;
+        }
+        ChartAnalysis analysis = inferenceEngine.applyTemplate(template, tableSupplier.get());
+        if (analysis == null) {
+            log.debug("Template {} -> {} does not fit the data, dropping it",
+                      template.getMapping().getCategoryField(), template.getMapping().getSeriesFields());
+            templateCache.invalidate(templateKey);
+        }
+        return analysis;
+    }
+
+    private void learnTemplate(String templateKey, Supplier<DataTable> tableSupplier, ChartAnalysis analysis) {
+        if (templateKey == null) {
+            return;
+        }
+        MappingTemplate template = inferenceEngine.deriveTemplate(analysis, tableSupplier.get());
+        if (template != null) {
+            templateCache.put(templateKey, template);
+        } else {
+            log.debug("LLM analysis is not a plain selection of fields, not caching it as a template");
+        }
+    }
+
+    /**
+     * @param budget   time left of the deadline; the call, including any hedge, is abandoned after it
+     * @param listener receives fields of the primary streamed response as they complete, or null
+     */
+    private Mono<ChartAnalysis> callLlm(String cacheKey, Supplier<PreparedPrompt> promptSupplier, Duration budget,
+                                        boolean skipReasoning, StreamingAnalysisParser.FieldListener listener) {
+        // An open breaker goes straight to the fallback without building a prompt
+        if (!circuitBreaker.tryAcquire()) {
+            return Mono.error(new CircuitBreaker.OpenException(circuitBreaker.getName()));
+        }
+
+        Timer.Sample promptSample = metrics.start();
+        PreparedPrompt prepared;
+        try {
+            prepared = promptSupplier.get();
+        } catch (RuntimeException e) {
+            circuitBreaker.onIgnored();
+            throw e;
+        }
+        String prompt = prepared.text();
+        String promptMode = prepared.table() != null ? "compact" : "full";
+        metrics.recordStage(promptSample, ChartMetrics.STAGE_PROMPT, null, model, ChartMetrics.OUTCOME_SUCCESS);
+        metrics.recordPromptSize(model, promptMode, prompt.length());
+
+        log.info("Sending request to LLM for chart analysis ({} estimated prompt tokens{})",
+                 promptCompactor.estimateTokens(prompt), prepared.table() != null ? ", compacted" : "");
+
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", model);
+        requestBody.put("messages", List.of(
+                Map.of("role", "system", "content", "You are a data visualization expert. Analyze the given JSON data and recommend the best chart type with configuration in valid JSON format."),
+                Map.of("role", "user", "content", prompt)
+        ));
+        requestBody.put("temperature", 0.7);
+        if (streamingEnabled) {
+            requestBody.put("stream", true);
+        }
+
+        long startNanos = System.nanoTime();
+        long deadlineNanos = startNanos + budget.toNanos();
+        // Calls that never left the limiter's queue say nothing about the provider's health
+        AtomicBoolean dispatched = new AtomicBoolean();
+        Mono<ChartAnalysis> call = limited(deadlineNanos, dispatched,
+                () -> request(requestBody, prepared.table(), skipReasoning, listener));
+        Duration hedgeDelay = hedgeDelay();
+        if (hedgeDelay != null && hedgeDelay.compareTo(budget) < 0) {
+            // Whichever request answers first wins; the other one is cancelled
+            call = Mono.firstWithValue(call, Mono.delay(hedgeDelay).flatMap(tick -> {
+                log.info("LLM call slower than {}, sending hedged request", hedgeDelay);
+                metrics.recordHedge(model);
+                return limited(deadlineNanos, dispatched, () -> request(requestBody, prepared.table(), skipReasoning, null));
+            }));
+        }
+
+        return call
+                .timeout(budget)
+                .doOnSuccess(analysis -> circuitBreaker.onSuccess(Duration.ofNanos(System.nanoTime() - startNanos)))
+                .doOnError(e -> {
+                    if (dispatched.get()) {
+                        circuitBreaker.onError();
+                    } else {
+                        circuitBreaker.onIgnored();
+                    }
+                })
+                .doOnCancel(circuitBreaker::onIgnored)
+                .doOnNext(analysis -> analysisCache.put(cacheKey, analysis));
+    }
+
+    /**
+     * Runs one request under the adaptive concurrency limit, queued at the caller's {@link CallPriority}
+     * until a permit is free or the deadline passes. 429 and 503 responses lower the limit, pause
+     * dispatching for their Retry-After and are retried up to {@code chart.llm.limiter.rate-limit-retries} times.
+     */
+    private Mono<ChartAnalysis> limited(long deadlineNanos, AtomicBoolean dispatched, Supplier<Mono<ChartAnalysis>> request) {
+        if (!limiterEnabled) {
+            return Mono.defer(() -> {
+                dispatched.set(true);
+                return request.get();
+            });
+        }
+        return Mono.deferContextual(context ->
+                        limiter.acquire(CallPriority.from(context), Duration.ofNanos(deadlineNanos - System.nanoTime())))
+                .flatMap(permit -> {
+                    dispatched.set(true);
+                    long startNanos = System.nanoTime();
+                    return request.get()
+                            .onErrorMap(WebClientResponseException.class, ChatClientService::overloaded)
+                            .doOnSuccess(analysis -> permit.onSuccess(Duration.ofNanos(System.nanoTime() - startNanos)))
+                            .doOnError(e -> {
+                                if (e instanceof AdaptiveLimiter.OverloadedException overloaded) {
+                                    permit.onOverload(overloaded.getRetryAfter());
+                                } else {
+                                    permit.release();
+                                }
+                            })
+                            .doOnCancel(permit::release);
+                })
+                .retryWhen(Retry.backoff(rateLimitRetries, Duration.ofMillis(500))
+                        .filter(AdaptiveLimiter.OverloadedException.class::isInstance)
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
+    }
 
-        log.info("Sending request to LLM for chart analysis");
+    private static Throwable overloaded(WebClientResponseException e) {
+        if (e.getStatusCode().value() != HttpStatus.TOO_MANY_REQUESTS.value()
+                && e.getStatusCode().value() != HttpStatus.SERVICE_UNAVAILABLE.value()) {
+            return e;
+        }
+        Duration retryAfter = retryAfter(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        log.warn("LLM provider overloaded ({}), retry after {}", e.getStatusCode().value(), retryAfter);
+        return new AdaptiveLimiter.OverloadedException("LLM provider answered " + e.getStatusCode().value(), retryAfter);
+    }
 
+    /**
+     * A Retry-After header in delay-seconds or HTTP-date form; null when absent or malformed.
+     */
+    static Duration retryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Duration.ofSeconds(Math.max(0, Long.parseLong(value.trim())));
+        } catch (NumberFormatException e) {
+            // HTTP-date form
+        }
         try {
-            Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", model);
-            requestBody.put("messages", List.of(
-                    Map.of("role", "system", "content", "You are a data visualization expert. Analyze the given JSON data and recommend the best chart type with configuration in valid JSON format."),
-                    Map.of("role", "user", "content", prompt)
-            ));
-            requestBody.put("temperature", 0.7);
-
-            String response = webClient.post()
+            Duration delay = Duration.between(Instant.now(), ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME));
+            return delay.isNegative() ? Duration.ZERO : delay;
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * One LLM request, streamed or not, up to the parsed analysis. Parsing and the later cache write
+     * run on the bounded elastic scheduler, never on the Netty event loop.
+     */
+    private Mono<ChartAnalysis> request(Map<String, Object> requestBody, DataTable table, boolean skipReasoning,
+                                        StreamingAnalysisParser.FieldListener listener) {
+        if (streamingEnabled) {
+            return sendStreaming(requestBody, table, skipReasoning, listener);
+        }
+        return send(requestBody)
+                .publishOn(Schedulers.boundedElastic())
+                .flatMap(response -> Mono.fromCallable(() -> {
+                    log.debug("LLM Response: {}", response);
+                    Timer.Sample parseSample = metrics.start();
+                    ChartAnalysis analysis;
+                    try {
+                        analysis = parseResponse(response, table);
+                    } catch (Exception e) {
+                        metrics.recordStage(parseSample, ChartMetrics.STAGE_PARSE, null, model, ChartMetrics.OUTCOME_ERROR);
+                        throw e;
+                    }
+                    metrics.recordStage(parseSample, ChartMetrics.STAGE_PARSE, analysis.getChartType(), model, ChartMetrics.OUTCOME_SUCCESS);
+                    return analysis;
+                }));
+    }
+
+    private Mono<String> send(Map<String, Object> requestBody) {
+        return Mono.defer(() -> {
+            Timer.Sample llmSample = metrics.start();
+            long startNanos = System.nanoTime();
+            return webClient.post()
                     .bodyValue(requestBody)
                     .retrieve()
                     .bodyToMono(String.class)
-                    .block();
+                    .doOnSuccess(response -> {
+                        latencies.record(Duration.ofNanos(System.nanoTime() - startNanos));
+                        metrics.recordStage(llmSample, ChartMetrics.STAGE_LLM, null, model, ChartMetrics.OUTCOME_SUCCESS);
+                    })
+                    .doOnError(e -> metrics.recordStage(llmSample, ChartMetrics.STAGE_LLM, null, model, ChartMetrics.OUTCOME_ERROR));
+        });
+    }
 
-            log.debug("LLM Response: {}", response);
+    /**
+     * Reads the completion as server-sent events, feeding each content delta to an incremental parser,
+     * and cancels the response as soon as the parser has what it needs. The recorded latency runs up to
+     * that point, when the analysis is emitted, which is what a hedged request races against.
+     */
+    private Mono<ChartAnalysis> sendStreaming(Map<String, Object> requestBody, DataTable table, boolean skipReasoning,
+                                              StreamingAnalysisParser.FieldListener listener) {
+        return Mono.defer(() -> {
+            Timer.Sample llmSample = metrics.start();
+            long startNanos = System.nanoTime();
+            StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, skipReasoning, listener);
+            return webClient.post()
+                    .accept(MediaType.TEXT_EVENT_STREAM)
+                    .bodyValue(requestBody)
+                    .retrieve()
+                    .bodyToFlux(SSE_EVENT)
+                    .map(event -> event.data() != null ? event.data() : "")
+                    .takeWhile(data -> !STREAM_DONE.equals(data.trim()))
+                    .publishOn(Schedulers.boundedElastic())
+                    .takeUntil(data -> feed(parser, data))
+                    .then(Mono.fromCallable(() -> {
+                        latencies.record(Duration.ofNanos(System.nanoTime() - startNanos));
+                        metrics.recordStage(llmSample, ChartMetrics.STAGE_LLM, null, model, ChartMetrics.OUTCOME_SUCCESS);
+                        AnalysisReader reader = parser.result();
+                        ChartAnalysis analysis = reader.analysis();
+                        if (table != null) {
+                            applyFieldMapping(analysis, reader.mapping(), table);
+                        }
+                        metrics.recordStage(ChartMetrics.STAGE_PARSE, analysis.getChartType(), model,
+                                ChartMetrics.OUTCOME_SUCCESS, Duration.ofNanos(parser.parseNanos()));
+                        log.debug("LLM stream {} with a {} analysis", parser.isComplete() ? "read to completion" : "ended early",
+                                  analysis.getChartType());
+                        return analysis;
+                    }))
+                    .doOnError(e -> metrics.recordStage(llmSample, ChartMetrics.STAGE_LLM, null, model, ChartMetrics.OUTCOME_ERROR));
+        });
+    }
 
-            return parseResponse(response);
-        } catch (Exception e) {
-            log.error("Error calling LLM API: {}", e.getMessage(), e);
-            // Return a default chart analysis as fallback
-            return createFallbackAnalysis(data, userTitle);
+    private boolean feed(StreamingAnalysisParser parser, String chunk) {
+        try {
+            String delta = extractDelta(chunk);
+            return delta != null && parser.feed(delta);
+        } catch (IOException e) {
+            throw Exceptions.propagate(e);
         }
     }
 
-    private String buildPrompt(JsonNode data, String userTitle, String userDescription) {
-        StringBuilder prompt = new StringBuilder();
-        prompt.append("Analyze the following JSON data and recommend the best chart type to visualize it.\n\n");
-        prompt.append("Data:\n").append(data.toPrettyString()).append("\n\n");
+    /**
+     * Delay before a hedged request: the configured percentile of recent calls' time to an analysis, never
+     * below the minimum delay. Null when hedging is disabled.
+     */
+    private Duration hedgeDelay() {
+        if (!hedgeEnabled) {
+            return null;
+        }
+        Duration observed = latencies.count() >= HEDGE_MIN_SAMPLES ? latencies.percentile(hedgePercentile) : null;
+        return observed != null && observed.compareTo(hedgeMinDelay) > 0 ? observed : hedgeMinDelay;
+    }
 
-        if (userTitle != null && !userTitle.isEmpty()) {
-            prompt.append("User Title: ").append(userTitle).append("\n");
+    /**
+     * Embeds the data verbatim when it fits the prompt budget. Larger tabular data is replaced by a
+     * summary and the LLM is asked for a field mapping, which is applied locally to the full table;
+     * larger non-tabular data is truncated.
+     */
+    PreparedPrompt preparePrompt(JsonNode data, String userTitle, String userDescription) {
+        return preparePrompt(data, () -> DataTables.fromJson(data), userTitle, userDescription);
+    }
+
+    private PreparedPrompt preparePrompt(JsonNode data, Supplier<DataTable> tableSupplier, String userTitle, String userDescription) {
+        if (!promptCompactor.exceedsBudget(data)) {
+            return new PreparedPrompt(buildPrompt(data.toPrettyString(), userTitle, userDescription), null);
         }
-        if (userDescription != null && !userDescription.isEmpty()) {
-            prompt.append("User Description: ").append(userDescription).append("\n");
+        DataTable table = tableSupplier.get();
+        if (table == null) {
+            return new PreparedPrompt(buildPrompt(promptCompactor.truncate(data), userTitle, userDescription), null);
         }
+        return new PreparedPrompt(buildCompactPrompt(promptCompactor.summarize(table), userTitle, userDescription), table);
+    }
+
+    String buildPrompt(String data, String userTitle, String userDescription) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("Analyze the following JSON data and recommend the best chart type to visualize it.\n\n");
+        prompt.append("Data:\n").append(data).append("\n\n");
+
+        appendUserContext(prompt, userTitle, userDescription);
 
         prompt.append("\nProvide your response as a JSON object with the following structure:\n");
         prompt.append("{\n");
@@ -91,48 +604,179 @@ public class ChatClientService {
         return prompt.toString();
     }
 
-    private ChartAnalysis parseResponse(String response) throws Exception {
-        JsonNode rootNode = objectMapper.readTree(response);
-        String content = rootNode.path("choices").get(0).path("message").path("content").asText();
+    private String buildCompactPrompt(String summary, String userTitle, String userDescription) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("The dataset below is too large to include, so it is described by its schema, per-field statistics and a row sample.\n");
+        prompt.append("Recommend the best chart type to visualize it and choose which fields to plot.\n\n");
+        prompt.append("Data summary:\n").append(summary).append("\n");
+
+        appendUserContext(prompt, userTitle, userDescription);
+
+        prompt.append("\nProvide your response as a JSON object with the following structure:\n");
+        prompt.append("{\n");
+        prompt.append("  \"chartType\": \"BAR\" or \"LINE\" or \"PIE\" or \"SCATTER\",\n");
+        prompt.append("  \"title\": \"Chart title\",\n");
+        prompt.append("  \"xAxisLabel\": \"X-axis label\",\n");
+        prompt.append("  \"yAxisLabel\": \"Y-axis label\",\n");
+        prompt.append("  \"categoryField\": \"name of the field holding category labels, or null to use row order\",\n");
+        prompt.append("  \"seriesFields\": [\"numeric field for series 1\", \"numeric field for series 2\", ...],\n");
+        prompt.append("  \"reasoning\": \"Brief explanation of why this chart type is recommended\"\n");
+        prompt.append("}\n\n");
+        prompt.append("Use field names exactly as listed. Do not include data values; they are filled in from the full dataset.");
+
+        return prompt.toString();
+    }
+
+    private void appendUserContext(StringBuilder prompt, String userTitle, String userDescription) {
+        if (userTitle != null && !userTitle.isEmpty()) {
+            prompt.append("User Title: ").append(userTitle).append("\n");
+        }
+        if (userDescription != null && !userDescription.isEmpty()) {
+            prompt.append("User Description: ").append(userDescription).append("\n");
+        }
+    }
+
+    /**
+     * @param table the full data when the prompt was compacted; categories and series are then
+     *              populated locally from the field mapping the LLM chose
+     */
+    ChartAnalysis parseResponse(String response, DataTable table) throws Exception {
+        String content = extractContent(response);
 
         log.debug("LLM Content: {}", content);
 
         // Extract JSON from markdown code blocks if present
         String jsonContent = extractJson(content);
 
-        JsonNode analysisNode = objectMapper.readTree(jsonContent);
-
-        ChartAnalysis analysis = new ChartAnalysis();
-        analysis.setChartType(analysisNode.path("chartType").asText("BAR"));
-        analysis.setTitle(analysisNode.path("title").asText("Chart"));
-        analysis.setXAxisLabel(analysisNode.path("xAxisLabel").asText("X Axis"));
-        analysis.setYAxisLabel(analysisNode.path("yAxisLabel").asText("Y Axis"));
-        analysis.setReasoning(analysisNode.path("reasoning").asText(""));
-
-        // Parse categories
-        List<String> categories = new ArrayList<>();
-        JsonNode categoriesNode = analysisNode.path("categories");
-        if (categoriesNode.isArray()) {
-            categoriesNode.forEach(cat -> categories.add(cat.asText()));
-        }
-        analysis.setCategories(categories);
-
-        // Parse series
-        Map<String, List<Double>> series = new HashMap<>();
-        JsonNode seriesNode = analysisNode.path("series");
-        if (seriesNode.isObject()) {
-            seriesNode.fields().forEachRemaining(entry -> {
-                List<Double> values = new ArrayList<>();
-                entry.getValue().forEach(val -> values.add(val.asDouble()));
-                series.put(entry.getKey(), values);
-            });
+        // Stream the analysis straight into the model; series values go directly into primitive arrays
+        AnalysisReader reader = new AnalysisReader();
+        try (JsonParser parser = objectMapper.getFactory().createParser(jsonContent)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("LLM content is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                reader.read(field, parser);
+            }
+        }
+
+        ChartAnalysis analysis = reader.analysis();
+        if (table != null) {
+            applyFieldMapping(analysis, reader.mapping(), table);
         }
-        analysis.setSeries(series);
 
         return analysis;
     }
 
-    private String extractJson(String content) {
+    /**
+     * Pulls {@code choices[0].message.content} out of the completion envelope without building a tree,
+     * recording token counts from the {@code usage} block on the way.
+     */
+    private String extractContent(String response) throws IOException {
+        String content = null;
+        try (JsonParser parser = objectMapper.getFactory().createParser(response)) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    JsonToken token = parser.nextToken();
+                    if ("choices".equals(field) && token == JsonToken.START_ARRAY) {
+                        content = readFirstChoiceContent(parser, "message");
+                    } else if ("usage".equals(field) && token == JsonToken.START_OBJECT) {
+                        recordUsage(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+        if (content == null) {
+            throw new IOException("LLM response has no choices[0].message.content");
+        }
+        return content;
+    }
+
+    /**
+     * Pulls {@code choices[0].delta.content} out of one streamed chunk; null when the chunk carries no content.
+     */
+    private String extractDelta(String chunk) throws IOException {
+        if (chunk.isBlank()) {
+            return null;
+        }
+        try (JsonParser parser = objectMapper.getFactory().createParser(chunk)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if ("choices".equals(field) && token == JsonToken.START_ARRAY) {
+                    return readFirstChoiceContent(parser, "delta");
+                }
+                parser.skipChildren();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads {@code [0].<message>.content} from the choices array and leaves the parser on its end.
+     */
+    private static String readFirstChoiceContent(JsonParser parser, String messageName) throws IOException {
+        String content = null;
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                if (parser.nextToken() == JsonToken.START_OBJECT && messageName.equals(field)) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String messageField = parser.currentName();
+                        parser.nextToken();
+                        if ("content".equals(messageField) && parser.currentToken().isScalarValue()) {
+                            content = parser.getValueAsString("");
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (parser.currentToken() == JsonToken.END_ARRAY) {
+            return content;
+        }
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            parser.skipChildren();
+        }
+        return content;
+    }
+
+    private void recordUsage(JsonParser parser) throws IOException {
+        long promptTokens = -1;
+        long completionTokens = -1;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "prompt_tokens" -> promptTokens = parser.getValueAsLong(-1);
+                case "completion_tokens" -> completionTokens = parser.getValueAsLong(-1);
+                default -> parser.skipChildren();
+            }
+        }
+        metrics.recordTokenUsage(model, promptTokens, completionTokens);
+    }
+
+    private void applyFieldMapping(ChartAnalysis analysis, FieldMapping mapping, DataTable table) {
+        if (!inferenceEngine.applyMapping(analysis, table, mapping)) {
+            log.warn("LLM field mapping {} -> {} did not match the data, using inferred fields",
+                     mapping.getCategoryField(), mapping.getSeriesFields());
+            ChartAnalysis inferred = inferenceEngine.infer(table, analysis.getTitle(), null);
+            analysis.setCategories(inferred.getCategories());
+            analysis.setSeries(inferred.getSeries());
+        }
+    }
+
+    String extractJson(String content) {
         // Try to extract JSON from markdown code blocks
         Pattern pattern = Pattern.compile("```(?:json)?\\s*([\\s\\S]*?)```");
         Matcher matcher = pattern.matcher(content);
@@ -150,49 +794,37 @@ public class ChatClientService {
         return content;
     }
 
-    private ChartAnalysis createFallbackAnalysis(JsonNode data, String userTitle) {
-        log.warn("Using fallback chart analysis");
+    record PreparedPrompt(String text, DataTable table) {
+    }
 
-        ChartAnalysis analysis = new ChartAnalysis();
-        analysis.setChartType("BAR");
-        analysis.setTitle(userTitle != null ? userTitle : "Data Visualization");
-        analysis.setXAxisLabel("Categories");
-        analysis.setYAxisLabel("Values");
-        analysis.setReasoning("Fallback analysis due to LLM service unavailability");
-
-        // Simple parsing attempt
-        List<String> categories = new ArrayList<>();
-        Map<String, List<Double>> series = new HashMap<>();
-        List<Double> values = new ArrayList<>();
-
-        if (data.isArray()) {
-            int index = 0;
-            for (JsonNode item : data) {
-                categories.add("Item " + (++index));
-                if (item.isNumber()) {
-                    values.add(item.asDouble());
-                } else if (item.isObject()) {
-                    item.fields().forEachRemaining(field -> {
-                        if (field.getValue().isNumber()) {
-                            values.add(field.getValue().asDouble());
-                        }
-                    });
+    private static <T> Supplier<T> memoize(Supplier<T> supplier) {
+        return new Supplier<>() {
+            private boolean computed;
+            private T value;
+
+            @Override
+            public synchronized T get() {
+                if (!computed) {
+                    value = supplier.get();
+                    computed = true;
                 }
+                return value;
             }
-        } else if (data.isObject()) {
-            data.fields().forEachRemaining(field -> {
-                categories.add(field.getKey());
-                if (field.getValue().isNumber()) {
-                    values.add(field.getValue().asDouble());
-                }
-            });
-        }
+        };
+    }
+
+    ChartAnalysis createFallbackAnalysis(JsonNode data, String userTitle) {
+        return asFallback(inferenceEngine.infer(data, userTitle, null));
+    }
 
-        series.put("Series 1", values);
-        analysis.setCategories(categories);
-        analysis.setSeries(series);
+    ChartAnalysis createFallbackAnalysis(DataTable table, String userTitle) {
+        return asFallback(inferenceEngine.infer(table, userTitle, null));
+    }
 
+    private ChartAnalysis asFallback(ChartAnalysis analysis) {
+        log.warn("Using fallback chart analysis");
+
+        analysis.setReasoning("Fallback analysis due to LLM service unavailability. " + analysis.getReasoning());
         return analysis;
     }
 }
-
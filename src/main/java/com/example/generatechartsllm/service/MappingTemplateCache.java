@@ -0,0 +1,134 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.Column;
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.model.CacheStats;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.example.generatechartsllm.util.CanonicalJson;
+import com.example.generatechartsllm.util.SchemaFingerprint;
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LLM decisions keyed by the shape of the data rather than its content, so a feed that keeps
+ * sending the same structure with new values is analyzed once per shape. Keys also cover title,
+ * description and model, which steer the decision. Bounded LRU with a TTL.
+ */
+@Service
+public class MappingTemplateCache {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final Clock clock;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    @Autowired
+    public MappingTemplateCache(@Value("${chart.cache.template.max-entries:1000}") int maxEntries,
+                                @Value("${chart.cache.template.ttl:PT24H}") Duration ttl) {
+        this(maxEntries, ttl, Clock.systemUTC());
+    }
+
+    MappingTemplateCache(int maxEntries, Duration ttl, Clock clock) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > MappingTemplateCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Key over the {@link SchemaFingerprint} of the payload plus title, description and model.
+     */
+    public String keyFor(JsonNode data, String title, String description, String model) {
+        return key("json", SchemaFingerprint.shape(data), title, description, model);
+    }
+
+    /**
+     * Key for data ingested straight into a table: layout plus each column's name and whether it
+     * holds text. Never equal to a key of a JSON payload.
+     */
+    public String keyFor(DataTable table, String title, String description, String model) {
+        TreeMap<String, Character> columns = new TreeMap<>();
+        for (Column column : table.getColumns()) {
+            columns.put(column.getName(), column.getTextCount() > 0 ? 's' : 'n');
+        }
+        return key("table", table.getLayout().name() + columns, title, description, model);
+    }
+
+    public MappingTemplate get(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                if (entry.expiresAt > clock.millis()) {
+                    hits.incrementAndGet();
+                    return entry.template;
+                }
+                entries.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    public void put(String key, MappingTemplate template) {
+        synchronized (entries) {
+            entries.put(key, new Entry(template, clock.millis() + ttl.toMillis()));
+        }
+    }
+
+    /**
+     * Drops a template that no longer fits the data it was looked up for.
+     */
+    public void invalidate(String key) {
+        synchronized (entries) {
+            if (entries.remove(key) != null) {
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    public CacheStats stats() {
+        int size;
+        synchronized (entries) {
+            size = entries.size();
+        }
+        return new CacheStats(hits.get(), 0, misses.get(), evictions.get(), size);
+    }
+
+    private static String key(String kind, String shape, String title, String description, String model) {
+        MessageDigest digest = CanonicalJson.newDigest();
+        CanonicalJson.update(digest, kind);
+        CanonicalJson.update(digest, shape);
+        CanonicalJson.update(digest, title);
+        CanonicalJson.update(digest, description);
+        CanonicalJson.update(digest, model);
+        return CanonicalJson.hex(digest);
+    }
+
+    private record Entry(MappingTemplate template, long expiresAt) {
+    }
+}
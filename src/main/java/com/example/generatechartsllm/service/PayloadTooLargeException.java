@@ -0,0 +1,8 @@
+package com.example.generatechartsllm.service;
+
+public class PayloadTooLargeException extends RuntimeException {
+
+    public PayloadTooLargeException(long limit) {
+        super("Request body exceeds the limit of " + limit + " bytes");
+    }
+}
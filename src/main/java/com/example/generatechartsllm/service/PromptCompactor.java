@@ -0,0 +1,224 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.Column;
+import com.example.generatechartsllm.data.ColumnStats;
+import com.example.generatechartsllm.data.ColumnType;
+import com.example.generatechartsllm.data.DataTable;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the data section of the LLM prompt within a token budget. Payloads that fit are sent
+ * verbatim; larger tabular payloads are replaced by a summary (schema, per-field statistics,
+ * an evenly spaced row sample and the true row count). Tokens are estimated from characters.
+ */
+@Service
+public class PromptCompactor {
+
+    private static final String SUMMARY_TRUNCATED = "\n... (summary truncated)";
+    private static final String TRUNCATED = "\n... (truncated)";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Value("${chart.prompt.token-budget:3000}")
+    private int tokenBudget;
+
+    @Value("${chart.prompt.chars-per-token:4}")
+    private int charsPerToken;
+
+    @Value("${chart.prompt.max-sample-rows:20}")
+    private int maxSampleRows;
+
+    /**
+     * True when the pretty-printed payload would exceed the budget. Serialization stops as soon
+     * as the budget is passed, so huge payloads are never fully written out.
+     */
+    public boolean exceedsBudget(JsonNode data) {
+        BudgetSink sink = new BudgetSink(charBudget());
+        try {
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(sink, data);
+            return false;
+        } catch (IOException e) {
+            return sink.exceeded;
+        }
+    }
+
+    public int estimateTokens(String text) {
+        return (text.length() + charsPerToken - 1) / charsPerToken;
+    }
+
+    /**
+     * Describes the table in at most the configured budget, shrinking the row sample until it fits.
+     */
+    public String summarize(DataTable table) {
+        StringBuilder schema = new StringBuilder();
+        schema.append("Layout: ").append(table.getLayout()).append("\n");
+        schema.append("Row count: ").append(table.getRowCount()).append("\n");
+        schema.append("Fields:\n");
+        for (Column column : table.getColumns()) {
+            schema.append("- ").append(describe(ColumnStats.of(column))).append("\n");
+        }
+
+        int sampleRows = Math.min(maxSampleRows, table.getRowCount());
+        String summary;
+        do {
+            summary = schema + "Sample rows (" + sampleRows + " of " + table.getRowCount() + ", evenly spaced):\n"
+                    + sample(table, sampleRows);
+            sampleRows = sampleRows > 1 ? sampleRows / 2 : 0;
+        } while (summary.length() > charBudget() && sampleRows > 0);
+
+        if (summary.length() > charBudget()) {
+            summary = cut(summary, charBudget() - SUMMARY_TRUNCATED.length()) + SUMMARY_TRUNCATED;
+        }
+        return summary;
+    }
+
+    /**
+     * Compact JSON of a non-tabular payload, cut off at the budget.
+     */
+    public String truncate(JsonNode data) {
+        BudgetSink sink = new BudgetSink(charBudget());
+        try {
+            objectMapper.writeValue(sink, data);
+        } catch (IOException e) {
+            // Budget reached; keep what was written
+        }
+        return sink.exceeded ? cut(sink.content(), charBudget() - TRUNCATED.length()) + TRUNCATED : sink.content();
+    }
+
+    private String describe(ColumnStats stats) {
+        StringBuilder line = new StringBuilder();
+        line.append('"').append(stats.name()).append("\": ").append(stats.type().name().toLowerCase());
+        line.append(", distinct=").append(stats.distinct()).append(stats.distinctCapped() ? "+" : "");
+        if (stats.missing() > 0) {
+            line.append(", missing=").append(stats.missing());
+        }
+        if (stats.type() == ColumnType.NUMERIC || !Double.isNaN(stats.min())) {
+            line.append(", min=").append(format(stats.min()))
+                    .append(", max=").append(format(stats.max()))
+                    .append(", mean=").append(format(stats.mean()));
+        }
+        if (!stats.examples().isEmpty()) {
+            line.append(", e.g. ").append(stats.examples());
+        }
+        return line.toString();
+    }
+
+    private String sample(DataTable table, int sampleRows) {
+        StringBuilder out = new StringBuilder();
+        for (int row : sampleIndices(table.getRowCount(), sampleRows)) {
+            ObjectNode node = objectMapper.createObjectNode();
+            for (Column column : table.getColumns()) {
+                double value = column.number(row);
+                if (!Double.isNaN(value)) {
+                    node.put(column.getName(), value);
+                } else if (column.label(row) != null) {
+                    node.put(column.getName(), column.label(row));
+                }
+            }
+            out.append(node).append("\n");
+        }
+        return out.toString();
+    }
+
+    private List<Integer> sampleIndices(int rows, int count) {
+        List<Integer> indices = new ArrayList<>(count);
+        if (count <= 1) {
+            if (count == 1) {
+                indices.add(0);
+            }
+            return indices;
+        }
+        double step = (double) (rows - 1) / (count - 1);
+        for (int i = 0; i < count; i++) {
+            int row = (int) Math.round(i * step);
+            if (indices.isEmpty() || indices.get(indices.size() - 1) != row) {
+                indices.add(row);
+            }
+        }
+        return indices;
+    }
+
+    private String format(double value) {
+        if (Double.isNaN(value)) {
+            return "n/a";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : String.format("%.4g", value);
+    }
+
+    private int charBudget() {
+        return tokenBudget * charsPerToken;
+    }
+
+    /**
+     * The first {@code maxChars} characters, one fewer if the cut would split a surrogate pair.
+     */
+    private static String cut(String text, int maxChars) {
+        int end = Math.max(0, Math.min(text.length(), maxChars));
+        if (end > 0 && end < text.length() && Character.isHighSurrogate(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.substring(0, end);
+    }
+
+    /**
+     * Collects up to a byte limit and then fails the write, aborting serialization early.
+     */
+    private static final class BudgetSink extends OutputStream {
+        private final byte[] buffer;
+        private int length;
+        private boolean exceeded;
+
+        private BudgetSink(int limit) {
+            this.buffer = new byte[limit];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (length == buffer.length) {
+                exceeded = true;
+                throw new IOException("Prompt budget exceeded");
+            }
+            buffer[length++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int accepted = Math.min(len, buffer.length - length);
+            System.arraycopy(b, off, buffer, length, accepted);
+            length += accepted;
+            if (accepted < len) {
+                exceeded = true;
+                throw new IOException("Prompt budget exceeded");
+            }
+        }
+
+        /**
+         * What was written, without a trailing multi-byte character that the limit cut short.
+         */
+        private String content() {
+            int end = length;
+            for (int i = length - 1; i >= Math.max(0, length - 4); i--) {
+                int lead = buffer[i] & 0xFF;
+                if ((lead & 0xC0) == 0x80) {
+                    continue; // continuation byte
+                }
+                int width = lead < 0x80 ? 1 : lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : 2;
+                if (i + width > length) {
+                    end = i;
+                }
+                break;
+            }
+            return new String(buffer, 0, end, StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.generatechartsllm.service;
+
+import org.jfree.chart.JFreeChart;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.AlphaComposite;
+import java.awt.Graphics2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Per-thread raster, PNG writer and output buffer for chart rendering. Render threads are a
+ * small fixed pool, so holding one set per thread keeps memory bounded while avoiding a fresh
+ * multi-megabyte raster and a growing byte array for every request.
+ */
+final class RenderBuffers {
+
+    /** Output buffers that grew past this size are dropped rather than kept for the next render. */
+    private static final int MAX_RETAINED_BYTES = 4 * 1024 * 1024;
+
+    private static final ThreadLocal<RenderBuffers> BUFFERS = ThreadLocal.withInitial(RenderBuffers::new);
+
+    private final ImageWriter writer;
+    private BufferedImage image;
+    private ExposedByteArrayOutputStream output = new ExposedByteArrayOutputStream();
+
+    private RenderBuffers() {
+        this.writer = ImageIO.getImageWritersByFormatName("png").next();
+    }
+
+    static RenderBuffers current() {
+        return BUFFERS.get();
+    }
+
+    /**
+     * Draws the chart into this thread's raster; the image is overwritten by the next draw.
+     */
+    BufferedImage draw(JFreeChart chart, int width, int height) {
+        BufferedImage target = image(width, height);
+        Graphics2D g2 = target.createGraphics();
+        try {
+            g2.setComposite(AlphaComposite.Clear);
+            g2.fillRect(0, 0, width, height);
+            g2.setComposite(AlphaComposite.SrcOver);
+            chart.draw(g2, new Rectangle2D.Double(0, 0, width, height), null, null);
+        } finally {
+            g2.dispose();
+        }
+        return target;
+    }
+
+    private BufferedImage image(int width, int height) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        return image;
+    }
+
+    /**
+     * Encodes the image as PNG with the given zlib level (0-9) into the reused output buffer.
+     */
+    byte[] encode(BufferedImage source, int compressionLevel) throws IOException {
+        if (output.capacity() > MAX_RETAINED_BYTES) {
+            output = new ExposedByteArrayOutputStream();
+        }
+        output.reset();
+
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(compressionQuality(compressionLevel));
+        try (ImageOutputStream stream = new MemoryCacheImageOutputStream(output)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(source, null, null), param);
+        } finally {
+            writer.reset();
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * The JDK PNG writer derives the deflate level as {@code 9 - round(9 * quality)}.
+     */
+    private static float compressionQuality(int compressionLevel) {
+        int level = Math.max(0, Math.min(9, compressionLevel));
+        return (9 - level) / 9f;
+    }
+
+    private static final class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        ExposedByteArrayOutputStream() {
+            super(64 * 1024);
+        }
+
+        int capacity() {
+            return buf.length;
+        }
+    }
+}
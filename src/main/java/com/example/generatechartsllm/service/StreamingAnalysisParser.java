@@ -0,0 +1,210 @@
+package com.example.generatechartsllm.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+
+/**
+ * Assembles an analysis from completion text as it streams in. Prose and code fences before the
+ * first {@code '{'} are ignored; each top-level field is parsed as soon as its value is complete,
+ * and {@link #feed} reports completion as soon as the object closes, so trailing prose is never
+ * waited for. When reasoning is not wanted, its text is not buffered, and reading stops at the
+ * {@code reasoning} field if everything needed to render has already arrived.
+ */
+final class StreamingAnalysisParser {
+
+    /**
+     * Receives each top-level field as soon as it is complete, with its parsed value.
+     */
+    @FunctionalInterface
+    interface FieldListener {
+        void onField(String name, JsonNode value);
+    }
+
+    private final ObjectMapper objectMapper;
+    private final boolean skipReasoning;
+    private final FieldListener listener;
+    private final AnalysisReader reader = new AnalysisReader();
+
+    private final StringBuilder key = new StringBuilder();
+    private final StringBuilder value = new StringBuilder();
+    private boolean started;
+    private boolean complete;
+    private boolean readingKey;
+    private String field;
+    private boolean discardValue;
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+    private long parseNanos;
+
+    /**
+     * @param listener notified of each completed field, or null
+     */
+    StreamingAnalysisParser(ObjectMapper objectMapper, boolean skipReasoning, FieldListener listener) {
+        this.objectMapper = objectMapper;
+        this.skipReasoning = skipReasoning;
+        this.listener = listener;
+    }
+
+    /**
+     * @return true once no further content is needed
+     */
+    boolean feed(CharSequence chunk) throws IOException {
+        for (int i = 0; i < chunk.length() && !complete; i++) {
+            accept(chunk.charAt(i));
+        }
+        return complete;
+    }
+
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * The analysis read so far. An object cut off mid-stream is accepted only if it is already renderable.
+     */
+    AnalysisReader result() throws IOException {
+        if (!started) {
+            throw new IOException("LLM stream contained no JSON object");
+        }
+        if (!complete && !reader.isRenderable()) {
+            throw new IOException("LLM stream ended before the analysis was complete");
+        }
+        return reader;
+    }
+
+    /**
+     * Time spent parsing completed field values, excluding the character scan.
+     */
+    long parseNanos() {
+        return parseNanos;
+    }
+
+    private void accept(char c) throws IOException {
+        if (!started) {
+            if (c == '{') {
+                started = true;
+                depth = 1;
+            }
+            return;
+        }
+        if (field == null) {
+            acceptBetweenFields(c);
+        } else {
+            acceptValue(c);
+        }
+    }
+
+    private void acceptBetweenFields(char c) {
+        if (readingKey) {
+            if (escaped) {
+                escaped = false;
+                key.append(c);
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                readingKey = false;
+            } else {
+                key.append(c);
+            }
+            return;
+        }
+        switch (c) {
+            case '"' -> {
+                readingKey = true;
+                key.setLength(0);
+            }
+            case ':' -> {
+                field = key.toString();
+                value.setLength(0);
+                discardValue = skipReasoning && "reasoning".equals(field);
+                if (discardValue && reader.isRenderable()) {
+                    complete = true;
+                }
+            }
+            case '}' -> complete = true;
+            default -> {
+                // whitespace and commas between fields
+            }
+        }
+    }
+
+    private void acceptValue(char c) throws IOException {
+        if (inString) {
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == '"') {
+                inString = false;
+            }
+            append(c);
+            return;
+        }
+        switch (c) {
+            case '"' -> {
+                inString = true;
+                append(c);
+            }
+            case '{', '[' -> {
+                depth++;
+                append(c);
+            }
+            case '}', ']' -> {
+                if (depth == 1) {
+                    endField();
+                    complete = true;
+                } else {
+                    depth--;
+                    append(c);
+                }
+            }
+            case ',' -> {
+                if (depth == 1) {
+                    endField();
+                } else {
+                    append(c);
+                }
+            }
+            default -> append(c);
+        }
+    }
+
+    private void append(char c) {
+        if (!discardValue) {
+            value.append(c);
+        }
+    }
+
+    private void endField() throws IOException {
+        String name = field;
+        field = null;
+        if (discardValue) {
+            return;
+        }
+        String raw = value.toString().trim();
+        long start = System.nanoTime();
+        JsonNode node = null;
+        try (JsonParser parser = objectMapper.createParser(raw)) {
+            if (parser.nextToken() != null) {
+                if (listener == null) {
+                    reader.read(name, parser);
+                } else {
+                    // Only the first value is read, so text the LLM left after it cannot reach the listener either
+                    node = objectMapper.readTree(parser);
+                    try (JsonParser tree = node.traverse(objectMapper)) {
+                        tree.nextToken();
+                        reader.read(name, tree);
+                    }
+                }
+            }
+        }
+        parseNanos += System.nanoTime() - start;
+        if (node != null) {
+            listener.onField(name, node);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.data.StreamingTableReader;
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a chart request body token by token. The {@code data} field goes straight into a
+ * primitive-backed {@link DataTable}, so memory is bounded by the extracted columns rather than
+ * by a JSON tree. Bodies over the configured size are rejected, up front when Content-Length
+ * says so and otherwise as soon as the limit is crossed.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StreamingIngestService {
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+    private final ChartMetrics metrics;
+
+    @Value("${chart.ingest.max-bytes:104857600}")
+    private long maxBytes;
+
+    /**
+     * @param contentLength declared body length, or -1 when unknown
+     * @throws PayloadTooLargeException when the body exceeds the limit
+     * @throws IllegalArgumentException when the body is not a chart request with tabular data
+     */
+    public IngestedRequest ingest(InputStream body, long contentLength) throws IOException {
+        if (contentLength > maxBytes) {
+            throw new PayloadTooLargeException(maxBytes);
+        }
+
+        ChartRequest metadata = new ChartRequest();
+        DataTable table = null;
+        LimitedInputStream limited = new LimitedInputStream(body, maxBytes);
+        try (JsonParser parser = jsonFactory.createParser(limited)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("Request body must be a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken token = parser.nextToken();
+                if (token.isStructStart() && !"data".equals(field)) {
+                    // Settings are scalars; an object or array in their place is ignored whole
+                    parser.skipChildren();
+                    continue;
+                }
+                switch (field) {
+                    case "data" -> table = StreamingTableReader.read(parser);
+                    case "title" -> metadata.setTitle(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    case "description" -> metadata.setDescription(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    case "downsampling" -> metadata.setDownsampling(token == JsonToken.VALUE_STRING ? parser.getText() : null);
+                    case "includeReasoning" -> metadata.setIncludeReasoning(token.isBoolean() ? parser.getBooleanValue() : null);
+                    case "compressionLevel" -> metadata.setCompressionLevel(token == JsonToken.VALUE_NUMBER_INT ? parser.getIntValue() : null);
+                    default -> parser.skipChildren();
+                }
+            }
+        }
+        if (table == null) {
+            throw new IllegalArgumentException("Request body has no data field");
+        }
+
+        log.info("Ingested {} rows x {} columns from {} bytes", table.getRowCount(), table.getColumns().size(), limited.count);
+        metrics.recordPayloadSize("stream", limited.count);
+        return new IngestedRequest(metadata, table);
+    }
+
+    /**
+     * @param metadata title, description and render settings; {@code data} is always null
+     */
+    public record IngestedRequest(ChartRequest metadata, DataTable table) {
+    }
+
+    private static final class LimitedInputStream extends FilterInputStream {
+        private final long limit;
+        private long count;
+
+        private LimitedInputStream(InputStream in, long limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                advance(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                advance(n);
+            }
+            return n;
+        }
+
+        private void advance(long n) {
+            count += n;
+            if (count > limit) {
+                throw new PayloadTooLargeException(limit);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Warms a new instance up before it reports ready: renders every chart type from the bundled samples
+ * (Java2D and font initialization, JFreeChart class loading, a first round of JIT compilation), runs the
+ * samples through inference, prompt building and response parsing, and pre-opens LLM connections.
+ * Runs on {@link ApplicationStartedEvent}, which Spring Boot publishes before readiness switches to
+ * ACCEPTING_TRAFFIC, so {@code /actuator/health/readiness} stays down until warm-up is over.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WarmupService {
+
+    static final List<String> CHART_TYPES = List.of("BAR", "LINE", "PIE", "SCATTER");
+
+    private final ChartService chartService;
+    private final ChatClientService chatClientService;
+    private final ChartInferenceEngine inferenceEngine;
+    private final ObjectMapper objectMapper;
+
+    @Value("${chart.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${chart.warmup.samples:classpath*:samples/*.json}")
+    private String samplesPattern;
+
+    @Value("${chart.warmup.iterations:3}")
+    private int iterations;
+
+    @Value("${chart.warmup.max-duration:PT20S}")
+    private Duration maxDuration;
+
+    @Value("${chart.warmup.llm-connections:4}")
+    private int llmConnections;
+
+    @Value("${chart.warmup.llm-timeout:PT5S}")
+    private Duration llmTimeout;
+
+    @Value("${chart.warmup.exit:false}")
+    private boolean exitWhenDone;
+
+    @EventListener(ApplicationStartedEvent.class)
+    public void warmUp(ApplicationStartedEvent event) {
+        if (enabled) {
+            warmUp(event.getApplicationContext());
+        }
+        if (exitWhenDone) {
+            // Training run, e.g. for an AppCDS archive: everything warm-up touched has been loaded
+            System.exit(SpringApplication.exit(event.getApplicationContext()));
+        }
+    }
+
+    private void warmUp(ApplicationContext context) {
+        long start = System.nanoTime();
+        CompletableFuture<Long> connections = llmConnections > 0
+                ? chatClientService.preconnect(llmConnections, llmTimeout).toFuture()
+                : CompletableFuture.completedFuture(0L);
+
+        List<Sample> samples = loadSamples(context);
+        long renders = render(samples);
+        long opened = connections.join();
+        log.info("Warm-up rendered {} charts from {} samples and opened {} of {} LLM connections in {} ms",
+                renders, samples.size(), opened, llmConnections, Duration.ofNanos(System.nanoTime() - start).toMillis());
+    }
+
+    private List<Sample> loadSamples(ApplicationContext context) {
+        List<Sample> samples = new ArrayList<>();
+        Resource[] resources;
+        try {
+            resources = context.getResources(samplesPattern);
+        } catch (IOException e) {
+            log.warn("Could not list warm-up samples {}: {}", samplesPattern, e.getMessage());
+            return samples;
+        }
+        for (Resource resource : resources) {
+            try (InputStream in = resource.getInputStream()) {
+                JsonNode body = objectMapper.readTree(in);
+                if (body != null && body.hasNonNull("data")) {
+                    samples.add(new Sample(body.get("data"), body.path("title").asText(null),
+                            body.path("description").asText(null)));
+                }
+            } catch (IOException e) {
+                log.debug("Skipping warm-up sample {}: {}", resource.getFilename(), e.getMessage());
+            }
+        }
+        return samples;
+    }
+
+    /**
+     * Runs each sample through the pipeline {@code iterations} times, rendering it as every chart type,
+     * until done or {@code max-duration} has passed.
+     *
+     * @return the number of charts rendered
+     */
+    private long render(List<Sample> samples) {
+        RenderOptions options = chartService.defaultRenderOptions();
+        Long renders = Flux.range(0, iterations)
+                .concatMap(i -> Flux.fromIterable(samples))
+                .flatMap(sample -> warmUp(sample, options), Runtime.getRuntime().availableProcessors())
+                .take(maxDuration)
+                .reduce(0L, Long::sum)
+                .block();
+        return renders == null ? 0 : renders;
+    }
+
+    private Mono<Long> warmUp(Sample sample, RenderOptions options) {
+        return Mono.fromCallable(() -> {
+                    ChartAnalysis analysis = inferenceEngine.infer(sample.data(), sample.title(), sample.description());
+                    chatClientService.preparePrompt(sample.data(), sample.title(), sample.description());
+                    chatClientService.parseResponse(completion(analysis), null);
+                    return analysis;
+                })
+                .flatMapMany(analysis -> Flux.fromIterable(CHART_TYPES)
+                        .concatMap(type -> chartService.renderAsync(new ChartAnalysis(type, analysis.getTitle(),
+                                analysis.getXAxisLabel(), analysis.getYAxisLabel(), analysis.getCategories(),
+                                analysis.getSeries(), analysis.getReasoning(), analysis.getConfidence()), options)))
+                .count()
+                .onErrorResume(e -> {
+                    log.debug("Warm-up render failed: {}", e.toString());
+                    return Mono.just(0L);
+                });
+    }
+
+    /**
+     * A chat completion carrying the analysis, as the provider would return it.
+     */
+    private String completion(ChartAnalysis analysis) throws IOException {
+        ObjectNode completion = objectMapper.createObjectNode();
+        completion.putArray("choices").addObject().putObject("message")
+                .put("role", "assistant")
+                .put("content", objectMapper.writeValueAsString(analysis));
+        return objectMapper.writeValueAsString(completion);
+    }
+
+    private record Sample(JsonNode data, String title, String description) {
+    }
+}
@@ -0,0 +1,287 @@
+package com.example.generatechartsllm.util;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Concurrency limit that adapts to the downstream's signals (AIMD). A call that completes within
+ * {@code latencyTolerance} times the smoothed latency while the limit was in use raises the limit by
+ * {@code 1/limit}, i.e. by about one per round trip. A slower call or an overload response (429/503)
+ * multiplies it by {@code backoffRatio}, once per congestion event; an overload response with a
+ * Retry-After also pauses dispatching until then.
+ * <p>
+ * Callers over the limit wait in a priority queue, FIFO within a priority. A waiter still queued at
+ * its deadline is dropped with a {@link TimeoutException}; when {@code queueCapacity} waiters are
+ * queued, new ones are refused with a {@link RejectedExecutionException}.
+ */
+@Slf4j
+public class AdaptiveLimiter {
+
+    private static final Comparator<Waiter> QUEUE_ORDER =
+            Comparator.comparing(Waiter::priority).thenComparingLong(Waiter::sequence);
+
+    /** Weight of the newest sample in the smoothed latency. */
+    private static final double SMOOTHING = 0.05;
+
+    @Getter
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final int queueCapacity;
+
+    private final PriorityQueue<Waiter> queue = new PriorityQueue<>(QUEUE_ORDER);
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private double limit;
+    private int inFlight;
+    private double smoothedLatencyNanos;
+    private long pausedUntilNanos;
+    private long lastDecreaseNanos = Long.MIN_VALUE;
+    private boolean resumeScheduled;
+    private long sequence;
+
+    public AdaptiveLimiter(String name, int initialLimit, int minLimit, int maxLimit, double backoffRatio,
+                           double latencyTolerance, int queueCapacity) {
+        this.name = name;
+        this.minLimit = Math.max(1, minLimit);
+        this.maxLimit = Math.max(this.minLimit, maxLimit);
+        this.limit = Math.max(this.minLimit, Math.min(initialLimit, this.maxLimit));
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * A permit once the call may start. Every permit must end in exactly one of {@link Permit#onSuccess},
+     * {@link Permit#onOverload} or {@link Permit#release}; later calls are ignored.
+     *
+     * @param maxWait how long the caller is willing to stay queued
+     */
+    public Mono<Permit> acquire(CallPriority priority, Duration maxWait) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(priority, nextSequence(), sink);
+            if (!enqueue(waiter)) {
+                rejected.incrementAndGet();
+                sink.error(new RejectedExecutionException("LLM call queue of '" + name + "' is full"));
+                return;
+            }
+            sink.onDispose(Schedulers.parallel().schedule(() -> expire(waiter),
+                    Math.max(0, maxWait.toNanos()), TimeUnit.NANOSECONDS));
+            sink.onCancel(() -> cancel(waiter));
+            drain();
+        });
+    }
+
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return queue.size();
+    }
+
+    /** Waiters dropped because their deadline passed while queued. */
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /** Waiters refused because the queue was full. */
+    public long rejectedCount() {
+        return rejected.get();
+    }
+
+    private synchronized long nextSequence() {
+        return sequence++;
+    }
+
+    private synchronized boolean enqueue(Waiter waiter) {
+        if (queue.size() >= queueCapacity) {
+            return false;
+        }
+        queue.add(waiter);
+        return true;
+    }
+
+    private void expire(Waiter waiter) {
+        boolean removed;
+        synchronized (this) {
+            removed = queue.remove(waiter);
+        }
+        if (removed) {
+            dropped.incrementAndGet();
+            waiter.sink.error(new TimeoutException("Deadline passed while queued for '" + name + "'"));
+        }
+    }
+
+    private void cancel(Waiter waiter) {
+        Permit leaked;
+        synchronized (this) {
+            queue.remove(waiter);
+            // Cancelled between being granted and receiving the permit
+            leaked = waiter.permit;
+        }
+        if (leaked != null) {
+            leaked.release();
+        }
+    }
+
+    private void drain() {
+        List<Waiter> granted = new ArrayList<>();
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now < pausedUntilNanos) {
+                scheduleResume(pausedUntilNanos - now);
+            } else {
+                while (!queue.isEmpty() && inFlight < (int) limit) {
+                    Waiter waiter = queue.poll();
+                    inFlight++;
+                    waiter.permit = new Permit(inFlight, now);
+                    granted.add(waiter);
+                }
+            }
+        }
+        granted.forEach(waiter -> waiter.sink.success(waiter.permit));
+    }
+
+    private void scheduleResume(long delayNanos) {
+        if (!resumeScheduled) {
+            resumeScheduled = true;
+            Schedulers.parallel().schedule(() -> {
+                synchronized (this) {
+                    resumeScheduled = false;
+                }
+                drain();
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void complete(Permit permit, Long latencyNanos, boolean overloaded, Duration retryAfter) {
+        synchronized (this) {
+            inFlight--;
+            if (overloaded) {
+                decrease(permit);
+                if (retryAfter != null && !retryAfter.isNegative()) {
+                    pausedUntilNanos = Math.max(pausedUntilNanos, System.nanoTime() + retryAfter.toNanos());
+                    log.info("'{}' overloaded, pausing LLM calls for {} (limit {})", name, retryAfter, (int) limit);
+                }
+            } else if (latencyNanos != null) {
+                if (smoothedLatencyNanos > 0 && latencyNanos > smoothedLatencyNanos * latencyTolerance) {
+                    decrease(permit);
+                } else if (permit.inFlightAtStart * 2 >= limit) {
+                    // Only grow a limit that is actually being used
+                    limit = Math.min(maxLimit, limit + 1 / limit);
+                }
+                smoothedLatencyNanos = smoothedLatencyNanos == 0
+                        ? latencyNanos
+                        : smoothedLatencyNanos * (1 - SMOOTHING) + latencyNanos * SMOOTHING;
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Backs off once per congestion event: calls that were already running when the limit last
+     * dropped report the same event.
+     */
+    private void decrease(Permit permit) {
+        if (permit.grantedNanos > lastDecreaseNanos) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+            lastDecreaseNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Permission for one call.
+     */
+    public final class Permit {
+
+        private final int inFlightAtStart;
+        private final long grantedNanos;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Permit(int inFlightAtStart, long grantedNanos) {
+            this.inFlightAtStart = inFlightAtStart;
+            this.grantedNanos = grantedNanos;
+        }
+
+        /** The call completed; its latency feeds the limit. */
+        public void onSuccess(Duration latency) {
+            if (done.compareAndSet(false, true)) {
+                complete(this, latency.toNanos(), false, null);
+            }
+        }
+
+        /**
+         * The downstream refused the call as overloaded.
+         *
+         * @param retryAfter how long the downstream asked to be left alone, or null
+         */
+        public void onOverload(Duration retryAfter) {
+            if (done.compareAndSet(false, true)) {
+                complete(this, null, true, retryAfter);
+            }
+        }
+
+        /** The call ended without a signal about the downstream's capacity, e.g. cancelled or failed otherwise. */
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                complete(this, null, false, null);
+            }
+        }
+    }
+
+    private static final class Waiter {
+        private final CallPriority priority;
+        private final long sequence;
+        private final MonoSink<Permit> sink;
+        private Permit permit; // guarded by the limiter
+
+        private Waiter(CallPriority priority, long sequence, MonoSink<Permit> sink) {
+            this.priority = priority;
+            this.sequence = sequence;
+            this.sink = sink;
+        }
+
+        CallPriority priority() {
+            return priority;
+        }
+
+        long sequence() {
+            return sequence;
+        }
+    }
+
+    /**
+     * A downstream response asking callers to back off, such as HTTP 429 or 503.
+     */
+    @Getter
+    public static class OverloadedException extends RuntimeException {
+        private final Duration retryAfter;
+
+        public OverloadedException(String message, Duration retryAfter) {
+            super(message);
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.generatechartsllm.util;
+
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * How urgently a caller needs its LLM call. Travels in the Reactor context, so a request handler
+ * tags its whole pipeline with {@code .contextWrite(CallPriority.INTERACTIVE.context())}.
+ */
+public enum CallPriority {
+    /** A user is waiting on the response, e.g. /generate. */
+    INTERACTIVE,
+    /** The default for untagged callers. */
+    NORMAL,
+    /** Batch and queued jobs; served only when nothing more urgent is waiting. */
+    BACKGROUND;
+
+    public Context context() {
+        return Context.of(CallPriority.class, this);
+    }
+
+    public static CallPriority from(ContextView context) {
+        return context.getOrDefault(CallPriority.class, NORMAL);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.generatechartsllm.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingJsonFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Content hashing over a canonical JSON form: object fields are written in
+ * sorted order so that two payloads differing only in field order hash the same.
+ */
+public final class CanonicalJson {
+
+    private static final JsonFactory JSON_FACTORY = new MappingJsonFactory();
+
+    private CanonicalJson() {
+    }
+
+    public static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Feeds the canonical form of the node into the digest without materializing it as a string.
+     */
+    public static void update(MessageDigest digest, JsonNode node) {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(new DigestSink(digest))) {
+            write(node, generator);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Feeds a nullable string into the digest, length-prefixed so adjacent values cannot collide.
+     */
+    public static void update(MessageDigest digest, String value) {
+        if (value == null) {
+            digest.update((byte) 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        digest.update((byte) 1);
+        digest.update(intBytes(bytes.length));
+        digest.update(bytes);
+    }
+
+    public static String hex(MessageDigest digest) {
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static void write(JsonNode node, JsonGenerator generator) throws IOException {
+        if (node == null || node.isMissingNode()) {
+            generator.writeNull();
+        } else if (node.isObject()) {
+            List<String> names = new ArrayList<>(node.size());
+            Iterator<String> it = node.fieldNames();
+            it.forEachRemaining(names::add);
+            Collections.sort(names);
+            generator.writeStartObject();
+            for (String name : names) {
+                generator.writeFieldName(name);
+                write(node.get(name), generator);
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode item : node) {
+                write(item, generator);
+            }
+            generator.writeEndArray();
+        } else {
+            generator.writeTree(node);
+        }
+    }
+
+    private static byte[] intBytes(int value) {
+        return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+    }
+
+    private static final class DigestSink extends OutputStream {
+        private final MessageDigest digest;
+
+        private DigestSink(MessageDigest digest) {
+            this.digest = digest;
+        }
+
+        @Override
+        public void write(int b) {
+            digest.update((byte) b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.example.generatechartsllm.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Count-based circuit breaker. The outcomes of the last {@code windowSize} calls are kept; once
+ * at least {@code minimumCalls} are recorded and the share of failed or slow calls reaches the
+ * threshold, the breaker opens and {@link #tryAcquire()} refuses calls for {@code openDuration}.
+ * After that a single probe call is let through: its success closes the breaker, its failure
+ * opens it again.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final Duration slowCallThreshold;
+    private final Duration openDuration;
+    private final Clock clock;
+
+    private final boolean[] window;
+    private int next;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private Instant openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold,
+                          Duration slowCallThreshold, Duration openDuration, Clock clock) {
+        this.name = name;
+        this.window = new boolean[Math.max(1, windowSize)];
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, window.length));
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallThreshold = slowCallThreshold;
+        this.openDuration = openDuration;
+        this.clock = clock;
+    }
+
+    /**
+     * @return whether a call may proceed; every permitted call must end in exactly one of
+     *         {@link #onSuccess}, {@link #onError} or {@link #onIgnored}
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.instant().isBefore(openedAt.plus(openDuration))) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * Records a completed call; calls slower than the slow-call threshold count as failures.
+     */
+    public void onSuccess(Duration latency) {
+        record(latency.compareTo(slowCallThreshold) > 0);
+    }
+
+    public void onError() {
+        record(true);
+    }
+
+    /**
+     * Releases a permit without recording an outcome, e.g. when the caller cancelled.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    private synchronized void record(boolean failure) {
+        switch (state) {
+            case HALF_OPEN -> {
+                if (failure) {
+                    open("probe call failed");
+                } else {
+                    close();
+                }
+            }
+            case CLOSED -> {
+                if (recorded == window.length) {
+                    if (window[next]) {
+                        failures--;
+                    }
+                } else {
+                    recorded++;
+                }
+                window[next] = failure;
+                if (failure) {
+                    failures++;
+                }
+                next = (next + 1) % window.length;
+                if (recorded >= minimumCalls && failures >= failureRateThreshold * recorded) {
+                    open(failures + " of the last " + recorded + " calls failed or were slow");
+                }
+            }
+            case OPEN -> {
+                // Late outcome of a call that started before the breaker opened
+            }
+        }
+    }
+
+    private void open(String reason) {
+        log.warn("Circuit breaker '{}' opened: {}", name, reason);
+        state = State.OPEN;
+        openedAt = clock.instant();
+        probeInFlight = false;
+    }
+
+    private void close() {
+        log.info("Circuit breaker '{}' closed", name);
+        state = State.CLOSED;
+        next = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    /**
+     * Signals that a call was refused because the breaker is open.
+     */
+    public static class OpenException extends RuntimeException {
+        public OpenException(String name) {
+            super("Circuit breaker '" + name + "' is open");
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.generatechartsllm.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * Structural description of a JSON payload with every value ignored: field names (sorted), value
+ * types, nesting and array-ness. Payloads that differ only in their numbers, texts or array lengths
+ * share a shape. Array elements are merged into one shape, objects field by field, and a null only
+ * counts where a field is never anything else, so a missing cell does not start a new shape.
+ */
+public final class SchemaFingerprint {
+
+    private static final String NULL = "z";
+
+    private SchemaFingerprint() {
+    }
+
+    public static String shape(JsonNode node) {
+        if (node == null || node.isNull() || node.isMissingNode()) {
+            return NULL;
+        }
+        if (node.isNumber()) {
+            return "n";
+        }
+        if (node.isTextual()) {
+            return "s";
+        }
+        if (node.isBoolean()) {
+            return "b";
+        }
+        StringBuilder out = new StringBuilder();
+        if (node.isObject()) {
+            TreeMap<String, String> fields = new TreeMap<>();
+            node.fields().forEachRemaining(field -> fields.put(field.getKey(), shape(field.getValue())));
+            appendObject(fields, out);
+        } else if (node.isArray()) {
+            appendArray(node, out);
+        } else {
+            out.append('?');
+        }
+        return out.toString();
+    }
+
+    private static void appendArray(JsonNode array, StringBuilder out) {
+        boolean allObjects = array.size() > 0;
+        for (JsonNode element : array) {
+            allObjects &= element.isObject();
+        }
+        out.append('[');
+        if (allObjects) {
+            TreeMap<String, Set<String>> fields = new TreeMap<>();
+            for (JsonNode element : array) {
+                element.fields().forEachRemaining(field ->
+                        fields.computeIfAbsent(field.getKey(), name -> new TreeSet<>()).add(shape(field.getValue())));
+            }
+            TreeMap<String, String> merged = new TreeMap<>();
+            fields.forEach((name, shapes) -> merged.put(name, union(shapes)));
+            appendObject(merged, out);
+        } else {
+            Set<String> shapes = new TreeSet<>();
+            for (JsonNode element : array) {
+                shapes.add(shape(element));
+            }
+            out.append(union(shapes));
+        }
+        out.append(']');
+    }
+
+    private static void appendObject(Map<String, String> fields, StringBuilder out) {
+        out.append('{');
+        Iterator<Map.Entry<String, String>> it = fields.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<String, String> field = it.next();
+            appendName(field.getKey(), out);
+            out.append(':').append(field.getValue());
+            if (it.hasNext()) {
+                out.append(',');
+            }
+        }
+        out.append('}');
+    }
+
+    private static String union(Set<String> shapes) {
+        if (shapes.size() > 1) {
+            shapes.remove(NULL);
+        }
+        return String.join("|", shapes);
+    }
+
+    /**
+     * Quoted so that names containing structural characters cannot alias another shape.
+     */
+    private static void appendName(String name, StringBuilder out) {
+        out.append('"');
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.generatechartsllm.util;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single execution. The first caller
+ * starts the work; callers arriving while it is in flight share its outcome, including errors.
+ * The key is released as soon as the work terminates, so later calls start fresh.
+ * <p>
+ * A waiter cancelling (for example on its own timeout) does not cancel the shared work.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public Mono<V> execute(K key, Supplier<Mono<V>> work) {
+        return Mono.defer(() -> {
+            boolean[] started = {false};
+            Mono<V> shared = inFlight.computeIfAbsent(key, k -> {
+                started[0] = true;
+                AtomicReference<Mono<V>> self = new AtomicReference<>();
+                Mono<V> mono = Mono.defer(work)
+                        .doFinally(signal -> inFlight.remove(k, self.get()))
+                        .cache();
+                self.set(mono);
+                return mono;
+            });
+            if (!started[0]) {
+                coalesced.incrementAndGet();
+            }
+            return shared;
+        });
+    }
+
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    public long coalescedCount() {
+        return coalesced.get();
+    }
+}
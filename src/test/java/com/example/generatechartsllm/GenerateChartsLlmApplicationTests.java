@@ -3,7 +3,7 @@ package com.example.generatechartsllm;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest(classes = GenerateChartsLlmApplication.class)
+@SpringBootTest(classes = GenerateChartsLlmApplication.class, properties = "chart.warmup.enabled=false")
 class GenerateChartsLlmApplicationTests {
 
     @Test
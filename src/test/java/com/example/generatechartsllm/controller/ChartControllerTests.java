@@ -0,0 +1,28 @@
+package com.example.generatechartsllm.controller;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartControllerTests {
+
+    private static final String ETAG = "\"abc123\"";
+
+    @Test
+    void ifNoneMatchComparesWeaklyAgainstEveryListedTag() {
+        assertTrue(ChartController.etagMatches("\"abc123\"", ETAG));
+        assertTrue(ChartController.etagMatches("W/\"abc123\"", ETAG));
+        assertTrue(ChartController.etagMatches("\"other\", W/\"abc123\"", ETAG));
+        assertTrue(ChartController.etagMatches("\"other\",\"abc123\"", ETAG));
+        assertTrue(ChartController.etagMatches("*", ETAG));
+    }
+
+    @Test
+    void differentMissingOrUnquotedTagsDoNotMatch() {
+        assertFalse(ChartController.etagMatches(null, ETAG));
+        assertFalse(ChartController.etagMatches(" ", ETAG));
+        assertFalse(ChartController.etagMatches("\"other\"", ETAG));
+        assertFalse(ChartController.etagMatches("W/\"other\", \"abc1234\"", ETAG));
+        assertFalse(ChartController.etagMatches("abc123", ETAG));
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.generatechartsllm.data;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingTableReaderTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "{\"January\": 2500, \"February\": \"3200\", \"March\": null}",
+            "[{\"quarter\": \"Q1\", \"revenue\": 25000}, {\"quarter\": \"Q2\", \"expenses\": 21000}]",
+            "{\"Q1\": {\"revenue\": 1, \"cost\": 2}, \"Q2\": {\"revenue\": 3}}",
+            "{\"month\": [\"Jan\", \"Feb\", \"Mar\"], \"sales\": [1, 2]}",
+            "{\"sales\": [{\"day\": \"Mon\", \"units\": 4}, {\"day\": \"Tue\", \"units\": 5}]}",
+            "{\"shares\": {\"iOS\": 27.5, \"Android\": 71.2}}",
+            "[3, 1, 4, 1, 5]"
+    })
+    void matchesTreeBasedTable(String json) throws Exception {
+        DataTable expected = DataTables.fromJson(objectMapper.readTree(json));
+
+        DataTable actual;
+        try (JsonParser parser = new JsonFactory().createParser(json)) {
+            parser.nextToken();
+            actual = StreamingTableReader.read(parser);
+        }
+
+        assertEquals(expected.getLayout(), actual.getLayout());
+        assertEquals(expected.getRowCount(), actual.getRowCount());
+        assertEquals(expected.getColumns().size(), actual.getColumns().size());
+        for (Column column : expected.getColumns()) {
+            Column other = actual.getColumn(column.getName());
+            assertNotNull(other, column.getName());
+            assertEquals(column.getType(), other.getType(), column.getName());
+            for (int row = 0; row < expected.getRowCount(); row++) {
+                assertEquals(column.label(row), other.label(row), column.getName() + "[" + row + "]");
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.generatechartsllm.downsampling;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DownsamplerTests {
+
+    private static double[] sineWithSpike(int length, int spikeAt) {
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = Math.sin(i / 500.0);
+        }
+        values[spikeAt] = 50;
+        return values;
+    }
+
+    @Test
+    void lttbKeepsEndpointsSpikeAndTarget() {
+        double[] values = sineWithSpike(100_000, 41_234);
+
+        int[] selected = new LttbDownsampler().select(values, 800);
+
+        assertEquals(800, selected.length);
+        assertEquals(0, selected[0]);
+        assertEquals(values.length - 1, selected[selected.length - 1]);
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 41_234));
+        assertAscending(selected);
+    }
+
+    @Test
+    void minMaxKeepsExtremesOfEveryBucket() {
+        double[] values = sineWithSpike(100_000, 77_777);
+        values[12_345] = -50;
+
+        int[] selected = new MinMaxDownsampler().select(values, 800);
+
+        assertTrue(selected.length <= 802);
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 77_777));
+        assertTrue(Arrays.stream(selected).anyMatch(i -> i == 12_345));
+        assertAscending(selected);
+    }
+
+    @Test
+    void shortSeriesAreKeptIntact() {
+        assertArrayEquals(new int[]{0, 1, 2}, new LttbDownsampler().select(new double[]{1, 2, 3}, 800));
+        assertArrayEquals(new int[]{0, 1, 2}, new MinMaxDownsampler().select(new double[]{1, 2, 3}, 800));
+    }
+
+    private static void assertAscending(int[] indices) {
+        for (int i = 1; i < indices.length; i++) {
+            assertTrue(indices[i] > indices[i - 1], "indices not strictly ascending at " + i);
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.generatechartsllm.metrics;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ChartMetrics metrics = new ChartMetrics(registry);
+
+    @Test
+    void chartTypeTagsAreNormalized() {
+        metrics.recordStage(metrics.start(), ChartMetrics.STAGE_DRAW, "bar", null, ChartMetrics.OUTCOME_SUCCESS);
+        metrics.recordStage(metrics.start(), ChartMetrics.STAGE_DRAW, "histogram", null, ChartMetrics.OUTCOME_SUCCESS);
+        ChartAnalysis analysis = new ChartAnalysis();
+        analysis.setChartType("Line");
+        metrics.recordAnalysis(metrics.start(), "gpt-4", ChartMetrics.OUTCOME_FALLBACK, analysis);
+
+        assertEquals(1, registry.get("chart.stage.duration").tags("stage", "draw", "chart.type", "BAR", "model", "none").timer().count());
+        assertEquals(1, registry.get("chart.stage.duration").tags("chart.type", "OTHER").timer().count());
+        assertEquals(1, registry.get("chart.analysis.duration").tags("chart.type", "LINE", "outcome", "fallback").timer().count());
+    }
+
+    @Test
+    void missingTokenCountsAreSkipped() {
+        metrics.recordTokenUsage("gpt-4", 120, -1);
+
+        assertEquals(120, registry.get("chart.llm.tokens").tags("type", "prompt").summary().totalAmount());
+        assertNull(registry.find("chart.llm.tokens").tags("type", "completion").summary());
+    }
+}
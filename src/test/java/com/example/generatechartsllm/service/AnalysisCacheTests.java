@@ -0,0 +1,143 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.SeriesData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnalysisCacheTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void keyIgnoresFieldOrder() throws Exception {
+        AnalysisCache cache = new AnalysisCache(10, Duration.ofMinutes(1), null, 100, Clock.systemUTC());
+        String a = cache.keyFor(objectMapper.readTree("{\"a\":1,\"b\":{\"x\":2,\"y\":3}}"), "t", null, "gpt-4");
+        String b = cache.keyFor(objectMapper.readTree("{\"b\":{\"y\":3,\"x\":2},\"a\":1}"), "t", null, "gpt-4");
+        String c = cache.keyFor(objectMapper.readTree("{\"a\":1,\"b\":{\"x\":2,\"y\":3}}"), "t", null, "gpt-3.5");
+
+        assertEquals(a, b);
+        assertNotEquals(a, c);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndExpiredEntries() {
+        MutableClock clock = new MutableClock();
+        AnalysisCache cache = new AnalysisCache(2, Duration.ofSeconds(10), null, 100, clock);
+        cache.put("a", analysis("A"));
+        cache.put("b", analysis("B"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", analysis("C"));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+
+        clock.advance(Duration.ofSeconds(11));
+        assertNull(cache.get("c"));
+
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(2, cache.stats().getMisses());
+        assertEquals(2, cache.stats().getEvictions());
+    }
+
+    @Test
+    void callersChangingAnalysesDoNotChangeTheCache() {
+        AnalysisCache cache = new AnalysisCache(10, Duration.ofMinutes(1), null, 100, Clock.systemUTC());
+        ChartAnalysis put = analysis("Original");
+        cache.put("k", put);
+        put.setTitle("Changed after put");
+
+        ChartAnalysis got = cache.get("k");
+        got.setTitle("Changed after get");
+        got.getCategories().set(0, "z");
+        got.getSeries().get("s")[0] = 99.0;
+
+        ChartAnalysis again = cache.get("k");
+        assertEquals("Original", again.getTitle());
+        assertEquals(List.of("a", "b"), again.getCategories());
+        assertArrayEquals(new double[]{1.0, 2.0}, again.getSeries().get("s"));
+    }
+
+    @Test
+    void diskTierSurvivesNewInstance(@TempDir Path dir) {
+        new AnalysisCache(10, Duration.ofMinutes(5), dir, 100, Clock.systemUTC()).put("k", analysis("Disk"));
+
+        AnalysisCache restarted = new AnalysisCache(10, Duration.ofMinutes(5), dir, 100, Clock.systemUTC());
+        ChartAnalysis restored = restarted.get("k");
+
+        assertNotNull(restored);
+        assertEquals("Disk", restored.getTitle());
+        assertArrayEquals(new double[]{1.0, 2.0}, restored.getSeries().get("s"));
+        assertEquals(1, restarted.stats().getDiskHits());
+    }
+
+    @Test
+    void diskHitKeepsTheFileExpiry(@TempDir Path dir) throws Exception {
+        MutableClock clock = new MutableClock();
+        new AnalysisCache(10, Duration.ofSeconds(10), dir, 100, clock).put("k", analysis("Disk"));
+        Files.setLastModifiedTime(dir.resolve("k.json"), FileTime.from(clock.instant()));
+
+        AnalysisCache restarted = new AnalysisCache(10, Duration.ofSeconds(10), dir, 100, clock);
+        clock.advance(Duration.ofSeconds(8));
+        assertNotNull(restarted.get("k"));
+
+        clock.advance(Duration.ofSeconds(3));
+        assertNull(restarted.get("k"));
+    }
+
+    @Test
+    void diskSweepDeletesExpiredThenOldestBeyondCap(@TempDir Path dir) throws Exception {
+        MutableClock clock = new MutableClock();
+        AnalysisCache cache = new AnalysisCache(10, Duration.ofSeconds(10), dir, 2, clock);
+        for (String key : List.of("old", "a", "b", "c")) {
+            cache.put(key, analysis(key));
+            Files.setLastModifiedTime(dir.resolve(key + ".json"), FileTime.from(clock.instant()));
+            clock.advance(Duration.ofSeconds(4));
+        }
+
+        assertEquals(2, cache.evictExpiredFromDisk());
+        assertFalse(Files.exists(dir.resolve("old.json")));
+        assertFalse(Files.exists(dir.resolve("a.json")));
+        assertTrue(Files.exists(dir.resolve("b.json")));
+        assertTrue(Files.exists(dir.resolve("c.json")));
+    }
+
+    private static ChartAnalysis analysis(String title) {
+        return new ChartAnalysis("BAR", title, "x", "y", List.of("a", "b"), new SeriesData().put("s", new double[]{1.0, 2.0}), "", null);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.generatechartsllm.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartImageCacheTests {
+
+    @Test
+    void evictsLeastRecentlyUsedImagesBeyondMaxBytes() {
+        ChartImageCache cache = new ChartImageCache(10);
+        cache.put("a", new byte[4]);
+        cache.put("b", new byte[4]);
+        assertNotNull(cache.get("a"));
+
+        cache.put("c", new byte[4]);
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+        assertEquals(1, cache.stats().getEvictions());
+        assertEquals(2, cache.stats().getSize());
+    }
+
+    @Test
+    void replacingAnImageCountsOnlyItsNewSize() {
+        ChartImageCache cache = new ChartImageCache(10);
+        cache.put("a", new byte[6]);
+        cache.put("a", new byte[3]);
+        cache.put("b", new byte[7]);
+
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("b"));
+        assertEquals(0, cache.stats().getEvictions());
+    }
+
+    @Test
+    void imageLargerThanTheCacheIsNotStoredAndEvictsNothing() {
+        ChartImageCache cache = new ChartImageCache(10);
+        cache.put("a", new byte[5]);
+        cache.put("big", new byte[11]);
+
+        assertNull(cache.get("big"));
+        assertNotNull(cache.get("a"));
+        assertEquals(0, cache.stats().getEvictions());
+        assertEquals(1, cache.stats().getHits());
+        assertEquals(1, cache.stats().getMisses());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.data.DataTables;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.FieldMapping;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.example.generatechartsllm.model.SeriesData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartInferenceEngineTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ChartInferenceEngine engine = new ChartInferenceEngine();
+
+    @Test
+    void monthlyValuesBecomeConfidentLineChart() throws Exception {
+        ChartAnalysis analysis = engine.infer(
+                objectMapper.readTree("{\"January\":2500,\"February\":3200,\"March\":2800,\"April\":3500}"),
+                "Monthly Sales", null);
+
+        assertEquals("LINE", analysis.getChartType());
+        assertEquals(List.of("January", "February", "March", "April"), analysis.getCategories());
+        assertArrayEquals(new double[]{2500, 3200, 2800, 3500}, analysis.getSeries().get("Value"));
+        assertTrue(analysis.getConfidence() >= 0.85);
+    }
+
+    @Test
+    void sharesSummingToHundredBecomePieChart() throws Exception {
+        ChartAnalysis analysis = engine.infer(
+                objectMapper.readTree("{\"Chrome\":65.2,\"Safari\":18.8,\"Edge\":9.6,\"Firefox\":4.1,\"Others\":2.3}"),
+                null, null);
+
+        assertEquals("PIE", analysis.getChartType());
+        assertTrue(analysis.getConfidence() >= 0.9);
+    }
+
+    @Test
+    void rowsWithLabelFieldBecomeMultiSeries() throws Exception {
+        ChartAnalysis analysis = engine.infer(objectMapper.readTree("""
+                [{"product": "A", "revenue": 25000, "expenses": 18000},
+                 {"product": "B", "revenue": 32000, "expenses": 21000}]
+                """), null, null);
+
+        assertEquals("BAR", analysis.getChartType());
+        assertEquals(List.of("A", "B"), analysis.getCategories());
+        assertArrayEquals(new double[]{25000, 32000}, analysis.getSeries().get("revenue"));
+        assertArrayEquals(new double[]{18000, 21000}, analysis.getSeries().get("expenses"));
+        assertEquals(List.of("revenue", "expenses"), analysis.getSeries().names());
+        assertEquals("Product", analysis.getXAxisLabel());
+    }
+
+    @Test
+    void identifierColumnsAreNotMeasures() throws Exception {
+        ChartAnalysis analysis = engine.infer(objectMapper.readTree("""
+                [{"id": 1017, "region": "North", "storeId": 7, "sales": 120},
+                 {"id": 2044, "region": "South", "storeId": 3, "sales": 95},
+                 {"id": 3102, "region": "East", "storeId": 9, "sales": 140}]
+                """), null, null);
+
+        assertEquals("BAR", analysis.getChartType());
+        assertEquals(List.of("sales"), analysis.getSeries().names());
+        assertEquals("Sales", analysis.getYAxisLabel());
+        assertTrue(analysis.getConfidence() >= 0.85);
+    }
+
+    @Test
+    void rowNumbersAreNotMeasuresAndIdentifiersAloneGoToTheLlm() throws Exception {
+        ChartAnalysis numbered = engine.infer(objectMapper.readTree("""
+                [{"n": 1, "region": "North", "sales": 120}, {"n": 2, "region": "South", "sales": 95},
+                 {"n": 3, "region": "East", "sales": 140}]
+                """), null, null);
+        assertEquals(List.of("sales"), numbered.getSeries().names());
+
+        ChartAnalysis onlyIds = engine.infer(objectMapper.readTree("""
+                [{"customer_id": 17, "region": "North"}, {"customer_id": 44, "region": "South"}]
+                """), null, null);
+        assertEquals(0.0, onlyIds.getConfidence());
+    }
+
+    @Test
+    void nonTabularDataHasZeroConfidence() throws Exception {
+        ChartAnalysis analysis = engine.infer(objectMapper.readTree("{\"a\":{\"b\":[1,{\"c\":2}]},\"d\":\"x\"}"), null, null);
+
+        assertEquals(0.0, analysis.getConfidence());
+    }
+
+    @Test
+    void templateDerivedFromLlmAnalysisRebuildsNewValues() throws Exception {
+        DataTable first = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "North", "sales": 10, "units": 1}, {"region": "South", "sales": 20, "units": null}]"""));
+        ChartAnalysis llm = new ChartAnalysis("BAR", "Sales by region", "Region", "Sales", List.of("North", "South"),
+                new SeriesData().put("Sales", new double[]{10, 20}).put("Units", new double[]{1, 0}), "Compare regions", null);
+
+        MappingTemplate template = engine.deriveTemplate(llm, first);
+
+        assertEquals("region", template.getMapping().getCategoryField());
+        assertEquals(List.of("sales", "units"), template.getMapping().getSeriesFields());
+
+        DataTable next = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "East", "sales": 5, "units": 2}, {"region": "West", "sales": 7, "units": 3},
+                 {"region": "North", "sales": 9, "units": 4}]"""));
+        ChartAnalysis rebuilt = engine.applyTemplate(template, next);
+
+        assertEquals("BAR", rebuilt.getChartType());
+        assertEquals("Sales by region", rebuilt.getTitle());
+        assertEquals(List.of("East", "West", "North"), rebuilt.getCategories());
+        assertArrayEquals(new double[]{5, 7, 9}, rebuilt.getSeries().get("Sales"));
+        assertArrayEquals(new double[]{2, 3, 4}, rebuilt.getSeries().get("Units"));
+        assertNull(rebuilt.getConfidence());
+    }
+
+    @Test
+    void computedValuesYieldNoTemplateAndMissingFieldsRejectOne() throws Exception {
+        DataTable table = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "North", "sales": 10}, {"region": "South", "sales": 20}]"""));
+        ChartAnalysis aggregated = new ChartAnalysis("PIE", "Share", "Region", "Share", List.of("North", "South"),
+                new SeriesData().put("Share", new double[]{33.3, 66.7}), "", null);
+
+        assertNull(engine.deriveTemplate(aggregated, table));
+
+        MappingTemplate template = new MappingTemplate("BAR", "t", "x", "y", "",
+                new FieldMapping("region", List.of("revenue")), List.of("Revenue"));
+        assertNull(engine.applyTemplate(template, table));
+    }
+
+    @Test
+    void columnsHoldingTheSameValuesNeedTheSeriesNameToBind() throws Exception {
+        DataTable table = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "North", "sales": 5, "forecast": 5}, {"region": "South", "sales": 5, "forecast": 5}]"""));
+        List<String> regions = List.of("North", "South");
+
+        ChartAnalysis unnamed = new ChartAnalysis("BAR", "t", "x", "y", regions,
+                new SeriesData().put("Revenue", new double[]{5, 5}), "", null);
+        assertNull(engine.deriveTemplate(unnamed, table));
+
+        ChartAnalysis named = new ChartAnalysis("BAR", "t", "x", "y", regions,
+                new SeriesData().put("Forecast", new double[]{5, 5}), "", null);
+        assertEquals(List.of("forecast"), engine.deriveTemplate(named, table).getMapping().getSeriesFields());
+
+        DataTable twoLabelColumns = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "North", "zone": "North", "sales": 1}, {"region": "South", "zone": "South", "sales": 2}]"""));
+        ChartAnalysis sales = new ChartAnalysis("BAR", "t", "x", "y", regions,
+                new SeriesData().put("sales", new double[]{1, 2}), "", null);
+        assertNull(engine.deriveTemplate(sales, twoLabelColumns));
+    }
+
+    @Test
+    void templateWithRepeatedSeriesNamesIsNotApplied() throws Exception {
+        DataTable table = DataTables.fromJson(objectMapper.readTree("""
+                [{"region": "North", "sales": 10, "units": 1}, {"region": "South", "sales": 20, "units": 2}]"""));
+        MappingTemplate template = new MappingTemplate("BAR", "t", "x", "y", "",
+                new FieldMapping("region", List.of("sales", "units")), List.of("Value", "Value"));
+
+        assertNull(engine.applyTemplate(template, table));
+    }
+}
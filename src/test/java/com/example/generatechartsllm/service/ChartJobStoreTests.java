@@ -0,0 +1,147 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartJob;
+import com.example.generatechartsllm.model.ChartRequest;
+import com.example.generatechartsllm.model.SeriesData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartJobStoreTests {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+    private final MutableClock clock = new MutableClock();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void unfinishedJobsAndRequestsSurviveNewInstance() throws Exception {
+        ChartJobStore store = store(10);
+        ChartJob queued = store.create(request("Queued"), ChartJob.Priority.LOW);
+        clock.advance(Duration.ofSeconds(1));
+        ChartJob running = store.update(store.create(request("Running"), ChartJob.Priority.HIGH).started(clock.instant()));
+
+        ChartJobStore restarted = store(10);
+
+        assertEquals(List.of(queued, running), restarted.unfinished());
+        assertEquals("Running", restarted.readRequest(running.id()).getTitle());
+        assertEquals(12, restarted.readRequest(queued.id()).getData().get("Q2").asInt());
+    }
+
+    @Test
+    void resultsAreReadableOnlyOnceSucceeded() throws Exception {
+        ChartJobStore store = store(10);
+        ChartJob job = store.update(store.create(request("Revenue"), ChartJob.Priority.NORMAL).started(clock.instant()));
+        store.saveResult(job.id(), analysis(), new byte[]{1, 2, 3});
+
+        assertTrue(store.readImage(job.id()).isEmpty());
+
+        store.update(job.succeeded(clock.instant(), "BAR"));
+
+        assertArrayEquals(new byte[]{1, 2, 3}, store.readImage(job.id()).orElseThrow());
+        assertEquals("Revenue", store.readAnalysis(job.id()).orElseThrow().getTitle());
+        assertFalse(Files.exists(dir.resolve(job.id()).resolve("request.json")));
+        assertTrue(store.readAnalysis("unknown").isEmpty());
+    }
+
+    @Test
+    void evictsExpiredThenOldestFinishedJobs() throws Exception {
+        ChartJobStore store = store(2);
+        ChartJob expired = finish(store, store.create(request("a"), ChartJob.Priority.NORMAL));
+        clock.advance(Duration.ofHours(2));
+        ChartJob oldest = finish(store, store.create(request("b"), ChartJob.Priority.NORMAL));
+        clock.advance(Duration.ofSeconds(1));
+        ChartJob kept1 = finish(store, store.create(request("c"), ChartJob.Priority.NORMAL));
+        ChartJob kept2 = finish(store, store.create(request("d"), ChartJob.Priority.NORMAL));
+        ChartJob unfinished = store.create(request("e"), ChartJob.Priority.NORMAL);
+
+        assertEquals(2, store.evictExpired());
+
+        assertTrue(store.get(expired.id()).isEmpty());
+        assertTrue(store.get(oldest.id()).isEmpty());
+        assertFalse(Files.exists(dir.resolve(expired.id())));
+        assertTrue(store.get(kept1.id()).isPresent());
+        assertTrue(store.get(kept2.id()).isPresent());
+        assertTrue(store.get(unfinished.id()).isPresent());
+    }
+
+    @Test
+    void idsThatAreNotGeneratedUuidsAreUnknown() throws Exception {
+        ChartJobStore store = store(10);
+        ChartJob job = store.create(request("a"), ChartJob.Priority.NORMAL);
+
+        for (String id : List.of("..", "../" + job.id(), job.id().toUpperCase(), "1-1-1-1-1", "")) {
+            assertTrue(store.get(id).isEmpty(), id);
+            assertTrue(store.readAnalysis(id).isEmpty(), id);
+            assertTrue(store.readImage(id).isEmpty(), id);
+            assertThrows(IllegalArgumentException.class, () -> store.readRequest(id), id);
+        }
+        assertTrue(store.get(job.id()).isPresent());
+    }
+
+    @Test
+    void discardsInterruptedSubmits() throws Exception {
+        Files.createDirectories(dir.resolve("partial"));
+        Files.writeString(dir.resolve("partial").resolve("request.json"), "{}");
+
+        ChartJobStore store = store(10);
+
+        assertTrue(store.unfinished().isEmpty());
+        assertFalse(Files.exists(dir.resolve("partial")));
+    }
+
+    private ChartJobStore store(int maxFinished) {
+        return new ChartJobStore(dir, Duration.ofHours(1), maxFinished, objectMapper, clock);
+    }
+
+    private ChartJob finish(ChartJobStore store, ChartJob job) throws Exception {
+        return store.update(job.started(clock.instant()).failed(clock.instant(), "boom"));
+    }
+
+    private ChartRequest request(String title) throws Exception {
+        ChartRequest request = new ChartRequest();
+        request.setTitle(title);
+        request.setData(objectMapper.readTree("{\"Q1\": 10, \"Q2\": 12}"));
+        return request;
+    }
+
+    private static ChartAnalysis analysis() {
+        return new ChartAnalysis("BAR", "Revenue", "x", "y", List.of("Q1", "Q2"), new SeriesData().put("s", new double[]{10, 12}), "", null);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
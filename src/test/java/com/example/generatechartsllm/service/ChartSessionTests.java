@@ -0,0 +1,66 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.downsampling.DownsamplingMode;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.ChartSessionInfo;
+import com.example.generatechartsllm.model.RenderOptions;
+import com.example.generatechartsllm.model.SeriesData;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChartSessionTests {
+
+    private static final RenderOptions OPTIONS = new RenderOptions(800, 600, DownsamplingMode.AUTO, 4);
+
+    @Test
+    void windowKeepsNewestPointsInOrderAndUpdatesLastBucketInPlace() {
+        ChartSession session = new ChartSession("s", analysis(List.of("a", "b", "c", "d"), new double[]{1, 2, 3, 4}), OPTIONS, 3, 0);
+
+        ChartAnalysis seeded = session.snapshot(0).analysis();
+        assertEquals(List.of("b", "c", "d"), seeded.getCategories());
+        assertArrayEquals(new double[]{2, 3, 4}, seeded.getSeries().get("Sales"));
+
+        ChartSessionInfo info = session.append(List.of("d", "e"),
+                new SeriesData().put("Sales", new double[]{40, 5}), 1);
+        assertEquals(3, info.points());
+        assertEquals(1, info.version());
+
+        ChartSession.Snapshot snapshot = session.snapshot(1);
+        assertEquals(List.of("c", "d", "e"), snapshot.analysis().getCategories());
+        assertArrayEquals(new double[]{3, 40, 5}, snapshot.analysis().getSeries().get("Sales"));
+        assertEquals("LINE", snapshot.analysis().getChartType());
+
+        session.append(List.of("f"), new SeriesData(), 2);
+        double[] sales = session.snapshot(2).analysis().getSeries().get("Sales");
+        assertEquals(5, sales[1]);
+        assertTrue(Double.isNaN(sales[2]));
+    }
+
+    @Test
+    void rejectsUpdatesThatDoNotFitAndCachesImagePerVersion() {
+        ChartSession session = new ChartSession("s", analysis(List.of("a"), new double[]{1}), OPTIONS, 10, 0);
+
+        assertThrows(IllegalArgumentException.class, () -> session.append(List.of(), null, 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> session.append(List.of("b"), new SeriesData().put("Costs", new double[]{1}), 1));
+        assertThrows(IllegalArgumentException.class,
+                () -> session.append(List.of("b"), new SeriesData().put("Sales", new double[]{1, 2}), 1));
+        assertEquals(1, session.touch(1).points());
+
+        session.cacheImage(0, new byte[]{1});
+        assertEquals(0, session.currentImage(1).version());
+        session.append(List.of("b"), new SeriesData().put("Sales", new double[]{2}), 1);
+        assertNull(session.currentImage(1));
+
+        assertFalse(session.idleSince(1));
+        assertTrue(session.idleSince(2));
+    }
+
+    private static ChartAnalysis analysis(List<String> categories, double[] sales) {
+        return new ChartAnalysis("LINE", "Sales", "Month", "Amount", categories,
+                new SeriesData().put("Sales", sales), "", null);
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.DataTables;
+import com.example.generatechartsllm.model.FieldMapping;
+import com.example.generatechartsllm.model.MappingTemplate;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappingTemplateCacheTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void keyFollowsShapeNotValues() throws Exception {
+        MappingTemplateCache cache = new MappingTemplateCache(10, Duration.ofMinutes(1), Clock.systemUTC());
+        String a = cache.keyFor(objectMapper.readTree("[{\"region\":\"North\",\"sales\":10}]"), "t", null, "gpt-4");
+        String b = cache.keyFor(objectMapper.readTree("[{\"sales\":7,\"region\":\"East\"},{\"region\":\"West\",\"sales\":null}]"),
+                "t", null, "gpt-4");
+        String renamed = cache.keyFor(objectMapper.readTree("[{\"region\":\"North\",\"revenue\":10}]"), "t", null, "gpt-4");
+        String retitled = cache.keyFor(objectMapper.readTree("[{\"region\":\"North\",\"sales\":10}]"), "u", null, "gpt-4");
+        String table = cache.keyFor(DataTables.fromJson(objectMapper.readTree("[{\"region\":\"North\",\"sales\":10}]")),
+                "t", null, "gpt-4");
+
+        assertEquals(a, b);
+        assertNotEquals(a, renamed);
+        assertNotEquals(a, retitled);
+        assertNotEquals(a, table);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedExpiredAndInvalidatedEntries() {
+        MutableClock clock = new MutableClock();
+        MappingTemplateCache cache = new MappingTemplateCache(2, Duration.ofSeconds(10), clock);
+        cache.put("a", template("A"));
+        cache.put("b", template("B"));
+        assertNotNull(cache.get("a"));
+        cache.put("c", template("C"));
+
+        assertNull(cache.get("b"));
+        assertEquals("A", cache.get("a").getTitle());
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+
+        clock.advance(Duration.ofSeconds(11));
+        assertNull(cache.get("c"));
+
+        assertEquals(2, cache.stats().getHits());
+        assertEquals(3, cache.stats().getMisses());
+        assertEquals(3, cache.stats().getEvictions());
+        assertEquals(0, cache.stats().getSize());
+    }
+
+    private static MappingTemplate template(String title) {
+        return new MappingTemplate("BAR", title, "x", "y", "", new FieldMapping("region", List.of("sales")), List.of("Sales"));
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
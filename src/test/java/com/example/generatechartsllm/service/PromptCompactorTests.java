@@ -0,0 +1,74 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.data.DataTable;
+import com.example.generatechartsllm.data.DataTables;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PromptCompactorTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PromptCompactor compactor = new PromptCompactor();
+
+    @BeforeEach
+    void configure() {
+        ReflectionTestUtils.setField(compactor, "tokenBudget", 500);
+        ReflectionTestUtils.setField(compactor, "charsPerToken", 4);
+        ReflectionTestUtils.setField(compactor, "maxSampleRows", 20);
+    }
+
+    @Test
+    void largeTableIsSummarizedWithinBudget() {
+        ArrayNode rows = objectMapper.createArrayNode();
+        for (int i = 0; i < 50_000; i++) {
+            rows.addObject().put("day", "2024-01-" + (i % 28 + 1)).put("requests", i).put("errors", i % 7);
+        }
+
+        assertTrue(compactor.exceedsBudget(rows));
+
+        DataTable table = DataTables.fromJson(rows);
+        String summary = compactor.summarize(table);
+
+        assertTrue(summary.length() <= 2000, "summary was " + summary.length() + " chars");
+        assertTrue(summary.contains("Row count: 50000"));
+        assertTrue(summary.contains("\"requests\": numeric"));
+        assertTrue(summary.contains("max=49999"));
+    }
+
+    @Test
+    void hardCutSummaryStaysWithinBudget() {
+        ArrayNode rows = objectMapper.createArrayNode();
+        for (int i = 0; i < 3; i++) {
+            var row = rows.addObject();
+            for (int c = 0; c < 200; c++) {
+                row.put("a_rather_long_metric_name_" + c, i * c);
+            }
+        }
+
+        String summary = compactor.summarize(DataTables.fromJson(rows));
+
+        assertTrue(summary.endsWith("(summary truncated)"));
+        assertTrue(summary.length() <= 2000, "summary was " + summary.length() + " chars");
+    }
+
+    @Test
+    void truncationDoesNotSplitMultiByteCharacters() {
+        var data = objectMapper.createObjectNode().put("text", "\u20ac".repeat(5000));
+
+        String truncated = compactor.truncate(data);
+
+        assertTrue(truncated.endsWith("(truncated)"));
+        assertFalse(truncated.contains("\ufffd"));
+        assertTrue(truncated.length() <= 2000, "truncated to " + truncated.length() + " chars");
+    }
+
+    @Test
+    void smallPayloadFitsBudget() throws Exception {
+        assertFalse(compactor.exceedsBudget(objectMapper.readTree("{\"January\":2500,\"February\":3200}")));
+    }
+}
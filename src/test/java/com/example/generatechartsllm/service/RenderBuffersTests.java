@@ -0,0 +1,80 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.config.RenderSchedulerConfig;
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.general.DefaultPieDataset;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderBuffersTests {
+
+    @Test
+    void compressionLevelChangesSizeButNotPixels() throws Exception {
+        JFreeChart chart = pieChart();
+        RenderBuffers buffers = RenderBuffers.current();
+
+        byte[] stored = buffers.encode(buffers.draw(chart, 400, 300), 0);
+        byte[] smallest = buffers.encode(buffers.draw(chart, 400, 300), 9);
+
+        assertTrue(stored.length > smallest.length);
+        BufferedImage a = ImageIO.read(new ByteArrayInputStream(stored));
+        BufferedImage b = ImageIO.read(new ByteArrayInputStream(smallest));
+        assertEquals(400, a.getWidth());
+        assertEquals(300, a.getHeight());
+        assertEquals(a.getRGB(200, 150), b.getRGB(200, 150));
+    }
+
+    @Test
+    void reusedBuffersReturnIndependentImages() throws Exception {
+        RenderBuffers buffers = RenderBuffers.current();
+
+        byte[] first = buffers.encode(buffers.draw(pieChart(), 200, 150), 4);
+        byte[] copy = first.clone();
+        buffers.encode(buffers.draw(pieChart(), 200, 150), 1);
+
+        assertArrayEquals(copy, first);
+    }
+
+    @Test
+    void fullRenderQueueRejects() throws Exception {
+        Scheduler scheduler = new RenderSchedulerConfig().chartRenderScheduler(1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            Mono<String> blocking = Mono.fromCallable(() -> {
+                release.await(5, TimeUnit.SECONDS);
+                return "done";
+            }).subscribeOn(scheduler);
+
+            var running = blocking.toFuture();
+            var queued = blocking.toFuture();
+            Thread.sleep(100);
+
+            assertThrows(RejectedExecutionException.class, () -> blocking.block());
+            release.countDown();
+            assertEquals("done", running.get(5, TimeUnit.SECONDS));
+            assertEquals("done", queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            scheduler.dispose();
+        }
+    }
+
+    private static JFreeChart pieChart() {
+        DefaultPieDataset<String> dataset = new DefaultPieDataset<>();
+        dataset.setValue("A", 40);
+        dataset.setValue("B", 35);
+        dataset.setValue("C", 25);
+        return ChartFactory.createPieChart("Share", dataset, true, false, false);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.model.AnalysisEvent;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingAnalysisParserTests {
+
+    private static final String ANALYSIS = """
+            {"chartType": "LINE", "title": "Sales \\"2024\\"", "xAxisLabel": "Month", "yAxisLabel": "Sales",
+             "categories": ["Jan", "Feb, early", "Mar"], "series": {"Sales": [1, 2.5, 3], "Units": [4, 5, 6]},
+             "reasoning": "Monthly values {trend} over time"}""";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void assemblesAnalysisFromSmallChunksAndIgnoresSurroundingProse() throws Exception {
+        String content = "Here is the analysis:\n```json\n" + ANALYSIS + "\n```\nLet me know if {anything} else.";
+        List<String> fields = new ArrayList<>();
+        StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, false, (name, raw) -> fields.add(name));
+
+        int consumed = feedInChunks(parser, content, 3);
+
+        assertTrue(parser.isComplete());
+        assertTrue(consumed < content.length(), "stops reading once the object closes");
+        ChartAnalysis analysis = parser.result().analysis();
+        assertEquals("LINE", analysis.getChartType());
+        assertEquals("Sales \"2024\"", analysis.getTitle());
+        assertEquals(List.of("Jan", "Feb, early", "Mar"), analysis.getCategories());
+        assertArrayEquals(new double[]{4, 5, 6}, analysis.getSeries().get("Units"));
+        assertEquals("Monthly values {trend} over time", analysis.getReasoning());
+        assertEquals(List.of("chartType", "title", "xAxisLabel", "yAxisLabel", "categories", "series", "reasoning"), fields);
+    }
+
+    @Test
+    void stopsAtReasoningWhenNotWantedAndRenderable() throws Exception {
+        StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, true, null);
+
+        int consumed = feedInChunks(parser, ANALYSIS, 5);
+
+        assertTrue(parser.isComplete());
+        assertTrue(consumed < ANALYSIS.indexOf("over time"), "reasoning text is not waited for");
+        ChartAnalysis analysis = parser.result().analysis();
+        assertEquals("", analysis.getReasoning());
+        assertArrayEquals(new double[]{1, 2.5, 3}, analysis.getSeries().get("Sales"));
+    }
+
+    @Test
+    void skipsReasoningButKeepsReadingWhenFieldsFollowIt() throws Exception {
+        String content = """
+                {"chartType": "BAR", "reasoning": "long text", "title": "T", "xAxisLabel": "x", "yAxisLabel": "y",
+                 "categoryField": "region", "seriesFields": ["sales"]}""";
+        StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, true, null);
+
+        feedInChunks(parser, content, 4);
+
+        AnalysisReader reader = parser.result();
+        assertEquals("", reader.analysis().getReasoning());
+        assertEquals("region", reader.mapping().getCategoryField());
+        assertEquals(List.of("sales"), reader.mapping().getSeriesFields());
+    }
+
+    @Test
+    void fieldEventsAreSingleLineJsonEvenForMultiLineValues() throws Exception {
+        String content = """
+                {"chartType": "BAR",
+                 "series": {
+                   "Sales": [1,
+                             2]
+                 } and that is all,
+                 "title": "T"}""";
+        List<AnalysisEvent> events = new ArrayList<>();
+        StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, false,
+                (name, value) -> events.add(AnalysisEvent.field(name, value)));
+
+        feedInChunks(parser, content, 4);
+
+        List<String> lines = new ArrayList<>();
+        for (AnalysisEvent event : events) {
+            lines.add(objectMapper.writeValueAsString(event));
+        }
+        assertEquals(3, lines.size());
+        for (String line : lines) {
+            assertFalse(line.contains("\n"), line);
+            objectMapper.readTree(line);
+        }
+        JsonNode series = objectMapper.readTree(lines.get(1));
+        assertEquals("series", series.get("field").asText());
+        assertEquals(objectMapper.readTree("{\"Sales\": [1, 2]}"), series.get("value"));
+        assertArrayEquals(new double[]{1, 2}, parser.result().analysis().getSeries().get("Sales"));
+    }
+
+    @Test
+    void truncatedStreamFailsUnlessRenderable() throws Exception {
+        StreamingAnalysisParser parser = new StreamingAnalysisParser(objectMapper, false, null);
+        parser.feed(ANALYSIS.substring(0, ANALYSIS.indexOf("\"categories\"")));
+
+        assertFalse(parser.isComplete());
+        assertThrows(java.io.IOException.class, parser::result);
+    }
+
+    private static int feedInChunks(StreamingAnalysisParser parser, String content, int size) throws Exception {
+        for (int i = 0; i < content.length(); i += size) {
+            if (parser.feed(content.substring(i, Math.min(content.length(), i + size)))) {
+                return Math.min(content.length(), i + size);
+            }
+        }
+        return content.length();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.metrics.ChartMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingIngestServiceTests {
+
+    private final StreamingIngestService service = new StreamingIngestService(new ChartMetrics(new SimpleMeterRegistry()));
+
+    {
+        ReflectionTestUtils.setField(service, "maxBytes", 1024L * 1024);
+    }
+
+    @Test
+    void nonScalarSettingsAreSkippedWithoutLosingTheFieldsAfterThem() throws Exception {
+        StreamingIngestService.IngestedRequest ingested = ingest("""
+                {"title": {"text": "Sales", "data": [9, 9]}, "description": ["a", {"b": 1}],
+                 "compressionLevel": [1], "data": {"Q1": 10, "Q2": 12}, "downsampling": "NONE"}""");
+
+        assertNull(ingested.metadata().getTitle());
+        assertNull(ingested.metadata().getDescription());
+        assertNull(ingested.metadata().getCompressionLevel());
+        assertEquals("NONE", ingested.metadata().getDownsampling());
+        assertEquals(2, ingested.table().getRowCount());
+    }
+
+    @Test
+    void bodyWithoutDataIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> ingest("{\"title\": \"Sales\"}"));
+    }
+
+    private StreamingIngestService.IngestedRequest ingest(String body) throws Exception {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return service.ingest(new ByteArrayInputStream(bytes), bytes.length);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.generatechartsllm.service;
+
+import com.example.generatechartsllm.GenerateChartsLlmApplication;
+import com.example.generatechartsllm.model.ChartAnalysis;
+import com.example.generatechartsllm.model.RenderOptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.ApplicationAvailability;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.event.EventListener;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+@SpringBootTest(classes = GenerateChartsLlmApplication.class,
+                properties = {"chart.warmup.iterations=1", "chart.warmup.llm-connections=0"})
+@Import(WarmupServiceTests.RecordReadiness.class)
+class WarmupServiceTests {
+
+    private static final List<ReadinessState> STATES_DURING_WARMUP = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger RENDERS_WHEN_READY = new AtomicInteger(-1);
+
+    @SpyBean
+    private ChartService chartService;
+
+    @Autowired
+    private ApplicationAvailability availability;
+
+    @Test
+    void readinessRefusesTrafficUntilWarmupHasFinished() {
+        assertFalse(STATES_DURING_WARMUP.isEmpty(), "warm-up rendered the samples");
+        assertTrue(STATES_DURING_WARMUP.stream().allMatch(ReadinessState.REFUSING_TRAFFIC::equals), STATES_DURING_WARMUP::toString);
+        assertEquals(STATES_DURING_WARMUP.size(), RENDERS_WHEN_READY.get(), "warm-up was over when readiness changed");
+        assertEquals(ReadinessState.ACCEPTING_TRAFFIC, availability.getReadinessState());
+    }
+
+    @TestConfiguration
+    static class RecordReadiness {
+
+        RecordReadiness(ChartService chartService, ApplicationAvailability availability) {
+            // Created during the refresh, before warm-up starts, so every warm-up render is recorded
+            doAnswer(invocation -> {
+                STATES_DURING_WARMUP.add(availability.getReadinessState());
+                return invocation.callRealMethod();
+            }).when(chartService).renderAsync(any(ChartAnalysis.class), any(RenderOptions.class));
+        }
+
+        @EventListener
+        void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+            if (event.getState() == ReadinessState.ACCEPTING_TRAFFIC) {
+                RENDERS_WHEN_READY.compareAndSet(-1, STATES_DURING_WARMUP.size());
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.generatechartsllm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveLimiterTests {
+
+    private static final Duration WAIT = Duration.ofSeconds(5);
+
+    @Test
+    void queuedCallsStartByPriorityThenArrival() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 0.5, 2.0, 10);
+        AdaptiveLimiter.Permit running = limiter.acquire(CallPriority.BACKGROUND, WAIT).block();
+
+        List<String> started = new ArrayList<>();
+        CompletableFuture<AdaptiveLimiter.Permit> batch = start(limiter, CallPriority.BACKGROUND, "batch", started);
+        CompletableFuture<AdaptiveLimiter.Permit> analyze = start(limiter, CallPriority.NORMAL, "analyze", started);
+        CompletableFuture<AdaptiveLimiter.Permit> generate = start(limiter, CallPriority.INTERACTIVE, "generate", started);
+        assertEquals(3, limiter.queued());
+
+        running.release();
+        generate.join().release();
+        analyze.join().release();
+        batch.join().release();
+
+        assertEquals(List.of("generate", "analyze", "batch"), started);
+        assertEquals(0, limiter.inFlight());
+    }
+
+    @Test
+    void limitGrowsWhileUsedAndBacksOffOncePerCongestionEvent() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 4, 1, 10, 0.5, 2.0, 10);
+        for (int round = 0; round < 2; round++) {
+            List<AdaptiveLimiter.Permit> permits = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                permits.add(limiter.acquire(CallPriority.NORMAL, WAIT).block());
+            }
+            permits.forEach(permit -> permit.onSuccess(Duration.ofMillis(100)));
+        }
+        assertEquals(5, limiter.limit());
+
+        AdaptiveLimiter.Permit first = limiter.acquire(CallPriority.NORMAL, WAIT).block();
+        AdaptiveLimiter.Permit second = limiter.acquire(CallPriority.NORMAL, WAIT).block();
+        first.onOverload(null);
+        second.onOverload(null);
+        assertEquals(2, limiter.limit());
+
+        limiter.acquire(CallPriority.NORMAL, WAIT).block().onSuccess(Duration.ofSeconds(1));
+        assertEquals(1, limiter.limit());
+    }
+
+    @Test
+    void dropsExpiredWaitersRejectsWhenFullAndHonorsRetryAfter() {
+        AdaptiveLimiter limiter = new AdaptiveLimiter("test", 1, 1, 1, 0.5, 2.0, 1);
+        AdaptiveLimiter.Permit running = limiter.acquire(CallPriority.NORMAL, WAIT).block();
+
+        CompletableFuture<AdaptiveLimiter.Permit> expiring = limiter.acquire(CallPriority.NORMAL, Duration.ofMillis(50)).toFuture();
+        CompletableFuture<AdaptiveLimiter.Permit> overflow = limiter.acquire(CallPriority.NORMAL, WAIT).toFuture();
+        assertInstanceOf(RejectedExecutionException.class, assertThrows(CompletionException.class, overflow::join).getCause());
+        assertInstanceOf(TimeoutException.class, assertThrows(CompletionException.class, expiring::join).getCause());
+        assertEquals(1, limiter.droppedCount());
+        assertEquals(1, limiter.rejectedCount());
+        assertEquals(0, limiter.queued());
+
+        long pausedAt = System.nanoTime();
+        running.onOverload(Duration.ofMillis(200));
+        AdaptiveLimiter.Permit next = limiter.acquire(CallPriority.NORMAL, WAIT).block();
+        assertTrue(System.nanoTime() - pausedAt >= Duration.ofMillis(150).toNanos());
+        next.release();
+    }
+
+    private static CompletableFuture<AdaptiveLimiter.Permit> start(AdaptiveLimiter limiter, CallPriority priority,
+                                                                   String name, List<String> started) {
+        return limiter.acquire(priority, WAIT)
+                .doOnNext(permit -> {
+                    synchronized (started) {
+                        started.add(name);
+                    }
+                })
+                .toFuture();
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.generatechartsllm.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTests {
+
+    private final MutableClock clock = new MutableClock();
+    private final CircuitBreaker breaker = new CircuitBreaker("test", 10, 4, 0.5,
+            Duration.ofSeconds(5), Duration.ofSeconds(30), clock);
+
+    @Test
+    void opensWhenFailureRateReachesThreshold() {
+        succeed(2);
+        assertTrue(breaker.tryAcquire());
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onError();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    @Test
+    void slowCallsCountAsFailures() {
+        for (int i = 0; i < 4; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(Duration.ofSeconds(6));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    @Test
+    void singleProbeAfterOpenDurationDecidesRecovery() {
+        tripOpen();
+        clock.advance(Duration.ofSeconds(31));
+
+        assertTrue(breaker.tryAcquire());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.state());
+        assertFalse(breaker.tryAcquire());
+
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+
+        clock.advance(Duration.ofSeconds(31));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess(Duration.ofMillis(100));
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.state());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void ignoredProbeReleasesThePermit() {
+        tripOpen();
+        clock.advance(Duration.ofSeconds(31));
+
+        assertTrue(breaker.tryAcquire());
+        breaker.onIgnored();
+
+        assertTrue(breaker.tryAcquire());
+    }
+
+    private void succeed(int calls) {
+        for (int i = 0; i < calls; i++) {
+            assertTrue(breaker.tryAcquire());
+            breaker.onSuccess(Duration.ofMillis(100));
+        }
+    }
+
+    private void tripOpen() {
+        for (int i = 0; i < 4; i++) {
+            breaker.tryAcquire();
+            breaker.onError();
+        }
+        assertEquals(CircuitBreaker.State.OPEN, breaker.state());
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
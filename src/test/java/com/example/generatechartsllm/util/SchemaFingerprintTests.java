@@ -0,0 +1,37 @@
+package com.example.generatechartsllm.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SchemaFingerprintTests {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void ignoresValuesFieldOrderArrayLengthAndMissingCells() throws Exception {
+        String shape = shape("""
+                {"sales": [{"month": "2024-01", "amount": 10}, {"month": "2024-02", "amount": 12}]}""");
+
+        assertEquals(shape, shape("""
+                {"sales": [{"amount": 99.5, "month": "2025-07"}, {"month": "2025-08", "amount": null},
+                           {"month": "2025-09", "amount": 1}]}"""));
+        assertEquals("{\"sales\":[{\"amount\":n,\"month\":s}]}", shape);
+    }
+
+    @Test
+    void distinguishesNamesTypesNestingAndArrayness() throws Exception {
+        String shape = shape("{\"a\": 1, \"b\": \"x\"}");
+
+        assertNotEquals(shape, shape("{\"a\": 1, \"c\": \"x\"}"));
+        assertNotEquals(shape, shape("{\"a\": \"1\", \"b\": \"x\"}"));
+        assertNotEquals(shape, shape("{\"a\": [1], \"b\": \"x\"}"));
+        assertNotEquals(shape, shape("{\"a\": {\"v\": 1}, \"b\": \"x\"}"));
+        assertNotEquals(shape("[1, 2]"), shape("[1, \"two\"]"));
+    }
+
+    private String shape(String json) throws Exception {
+        return SchemaFingerprint.shape(objectMapper.readTree(json));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.generatechartsllm.util;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTests {
+
+    @Test
+    void concurrentCallersShareOneExecution() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger executions = new AtomicInteger();
+        Sinks.One<String> result = Sinks.one();
+
+        Mono<String> first = singleFlight.execute("k", () -> {
+            executions.incrementAndGet();
+            return result.asMono();
+        });
+        Mono<String> second = singleFlight.execute("k", () -> {
+            executions.incrementAndGet();
+            return Mono.just("other");
+        });
+
+        var firstValue = first.toFuture();
+        var secondValue = second.toFuture();
+        result.tryEmitValue("value");
+
+        assertEquals("value", firstValue.join());
+        assertEquals("value", secondValue.join());
+        assertEquals(1, executions.get());
+        assertEquals(1, singleFlight.coalescedCount());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void errorsReachEveryWaiterAndReleaseTheKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        Sinks.One<String> result = Sinks.one();
+
+        var first = singleFlight.execute("k", result::asMono).toFuture();
+        var second = singleFlight.execute("k", result::asMono).toFuture();
+        result.tryEmitError(new IllegalStateException("boom"));
+
+        assertTrue(first.isCompletedExceptionally());
+        assertTrue(second.isCompletedExceptionally());
+        assertEquals("fresh", singleFlight.execute("k", () -> Mono.just("fresh")).block());
+    }
+
+    @Test
+    void oneWaiterCancellingDoesNotCancelTheSharedWork() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        Sinks.One<String> result = Sinks.one();
+        AtomicBoolean workCancelled = new AtomicBoolean();
+        Mono<String> work = result.asMono().doOnCancel(() -> workCancelled.set(true));
+
+        var first = singleFlight.execute("k", () -> work).subscribe();
+        var second = singleFlight.execute("k", () -> work).toFuture();
+        first.dispose();
+        result.tryEmitValue("value");
+
+        assertFalse(workCancelled.get());
+        assertEquals("value", second.join());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+}